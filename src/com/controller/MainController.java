@@ -85,16 +85,35 @@ public class MainController {
 
     private void onSplitTypeChanged() {
         SplitMode mode = splitTypeComboBox.getValue();
+        chunkSizeField.setDisable(mode == SplitMode.LOG_TIME); // 按时间分割只需选择窗口
         if (mode == SplitMode.LOG) {
             sizeOrLineLabel.setText("分片行数");
             chunkSizeField.setText("1000");
-            chunkUnitComboBox.getItems().setAll("行");
+            chunkUnitComboBox.getItems().setAll("行", "份");
             chunkUnitComboBox.setValue("行");
-            chunkUnitComboBox.setDisable(true);
+            chunkUnitComboBox.setDisable(false);
+        } else if (mode == SplitMode.LOG_TIME) {
+            sizeOrLineLabel.setText("时间窗口");
+            chunkSizeField.setText("1");
+            chunkUnitComboBox.getItems().setAll("分钟", "小时", "天");
+            chunkUnitComboBox.setValue("小时");
+            chunkUnitComboBox.setDisable(false);
+        } else if (mode == SplitMode.LOG_SIZE) {
+            sizeOrLineLabel.setText("分片上限");
+            chunkSizeField.setText("50");
+            chunkUnitComboBox.getItems().setAll("KB", "MB", "GB");
+            chunkUnitComboBox.setValue("MB");
+            chunkUnitComboBox.setDisable(false);
+        } else if (mode == SplitMode.CDC) {
+            sizeOrLineLabel.setText("平均大小");
+            chunkSizeField.setText("4");
+            chunkUnitComboBox.getItems().setAll("KB", "MB", "GB");
+            chunkUnitComboBox.setValue("MB");
+            chunkUnitComboBox.setDisable(false);
         } else {
             sizeOrLineLabel.setText("分片大小");
             chunkSizeField.setText("50");
-            chunkUnitComboBox.getItems().setAll("KB", "MB", "GB");
+            chunkUnitComboBox.getItems().setAll("KB", "MB", "GB", "份");
             chunkUnitComboBox.setValue("MB");
             chunkUnitComboBox.setDisable(false);
         }
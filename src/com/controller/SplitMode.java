@@ -2,7 +2,10 @@ package com.controller;
 
 public enum SplitMode {
     FILE("文件"),
-    LOG("日志");
+    LOG("日志"),
+    LOG_SIZE("日志（按大小）"),
+    LOG_TIME("日志（按时间）"),
+    CDC("内容分块");
 
     private final String displayName;
 
@@ -31,6 +31,7 @@ public class AboutMenuBarHandler {
 
                                 "【功能说明】\n" +
                                 "• 文件分割：支持按字节（KB/MB/GB）或按行数分割大文件\n" +
+                                "• 内容分块：按内容决定分片边界，文件局部改动只影响少数分片\n" +
                                 "• 文件合并：自动识别分片文件（xxx_01.ext 格式）并合并\n" +
                                 "• 自定义输出：分片可输出到任意空文件夹\n" +
                                 "• 可视化调整：合并前可调整分片顺序、删除不需要的分片\n\n" +
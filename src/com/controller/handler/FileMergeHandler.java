@@ -1,6 +1,7 @@
 package com.controller.handler;
 
 import com.util.FileMergeUtil;
+import com.util.MergeOptions;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -186,7 +187,7 @@ public class FileMergeHandler {
                 return FileMergeUtil.mergeFilesInOrder(
                         new ArrayList<>(filesToMerge), // 按用户顺序
                         outputFile,
-                        progress -> updateProgress(progress, 1.0)
+                        new MergeOptions().progress(event -> updateProgress(event.getDone(), event.getTotal()))
                 );
             }
         };
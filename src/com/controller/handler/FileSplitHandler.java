@@ -1,7 +1,10 @@
 package com.controller.handler;
 
+import com.util.CdcSplitUtil;
 import com.util.FileSplitUtil;
 import com.util.LogSplitUtil;
+import com.util.SplitOptions;
+import com.util.TimeWindow;
 import com.controller.SplitMode;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
@@ -16,6 +19,9 @@ import java.io.File;
 
 public class FileSplitHandler {
 
+    /** 分片单位下拉框中表示“按份数均分”的选项 */
+    private static final String PART_COUNT_UNIT = "份";
+
     private final TextField splitPathTextArea;
     private final TextField chunkSizeField;
     private final javafx.scene.control.ComboBox<String> chunkUnitComboBox;
@@ -91,10 +97,10 @@ public class FileSplitHandler {
             return;
         }
 
-        if (mode == SplitMode.LOG) {
-            startLogSplit();
-        } else if (mode == SplitMode.FILE) {
-            startFileSplit();
+        if (mode == SplitMode.LOG || mode == SplitMode.LOG_TIME) {
+            startLogSplit(mode);
+        } else if (mode == SplitMode.FILE || mode == SplitMode.CDC || mode == SplitMode.LOG_SIZE) {
+            startFileSplit(mode);
         } else {
             showAlert("错误", "不支持当前类型");
         }
@@ -114,7 +120,8 @@ public class FileSplitHandler {
     }
 
     // ===== 以下是简化版，你可粘贴原逻辑 =====
-    private void startFileSplit() {
+    // FILE 按固定大小切分；CDC 以输入大小作为平均分片大小做内容定义分块；LOG_SIZE 以输入大小为上限按行边界切分
+    private void startFileSplit(SplitMode mode) {
         String path = splitPathTextArea.getText();
         if (path == null || path.trim().isEmpty()) {
             showAlert("错误", "请选择一个有效的文件路径！");
@@ -153,12 +160,26 @@ public class FileSplitHandler {
 
         String unit = chunkUnitComboBox.getValue();
         if (unit == null) {
-            showAlert("错误", "请选择分片单位（KB/MB/GB）！");
+            showAlert("错误", "请选择分片单位（KB/MB/GB/份）！");
+            return;
+        }
+
+        // “份”表示均分为固定数量的分片（仅按大小分割）
+        boolean byPartCount = PART_COUNT_UNIT.equals(unit);
+        if (byPartCount && mode != SplitMode.FILE) {
+            showAlert("错误", "当前模式不支持按份数分割！");
+            return;
+        }
+        if (byPartCount && numericSize > Integer.MAX_VALUE) {
+            showAlert("错误", "分片数量过多！");
             return;
         }
 
         long chunkSizeBytes;
         switch (unit) {
+            case PART_COUNT_UNIT:
+                chunkSizeBytes = 0; // 由工具类按份数计算
+                break;
             case "KB":
                 chunkSizeBytes = numericSize * 1024L;
                 break;
@@ -174,7 +195,7 @@ public class FileSplitHandler {
         }
 
         // 防止内存溢出或不合理值（例如 > 1TB）
-        if (chunkSizeBytes <= 0 || chunkSizeBytes > 1L * 1024 * 1024 * 1024 * 1024) { // >1TB 视为非法
+        if (!byPartCount && (chunkSizeBytes <= 0 || chunkSizeBytes > 1L * 1024 * 1024 * 1024 * 1024)) { // >1TB 视为非法
             showAlert("错误", "分片大小超出合理范围（建议 1KB ~ 1TB）！");
             return;
         }
@@ -207,9 +228,20 @@ public class FileSplitHandler {
         Task<Integer> splitTask = new Task<Integer>() {
             @Override
             protected Integer call() throws Exception {
-                return FileSplitUtil.splitFile(file, outputDir, chunkSizeBytes, progress -> {
-                    updateProgress(progress, 1.0);
-                });
+                // 进度事件已在工具类内节流，不会每个缓冲区都触发一次 updateProgress
+                SplitOptions options = new SplitOptions().progress(
+                        event -> updateProgress(event.getDone(), event.getTotal()));
+                if (mode == SplitMode.LOG_SIZE) {
+                    return LogSplitUtil.splitLogFileBySize(file, outputDir, chunkSizeBytes, 0, options);
+                }
+                if (mode == SplitMode.CDC) {
+                    return CdcSplitUtil.splitFile(file, outputDir,
+                            chunkSizeBytes / 4, chunkSizeBytes, chunkSizeBytes * 4, options);
+                }
+                if (byPartCount) {
+                    return FileSplitUtil.splitFileIntoParts(file, outputDir, (int) numericSize, options);
+                }
+                return FileSplitUtil.splitFile(file, outputDir, chunkSizeBytes, options);
             }
         };
 
@@ -270,7 +302,8 @@ public class FileSplitHandler {
     }
 
 
-    private void startLogSplit() {
+    // LOG 按行数（或按行边界均分份数）分割；LOG_TIME 按行首时间戳的时间窗口分割
+    private void startLogSplit(SplitMode mode) {
         // 1. 校验源文件
         String path = splitPathTextArea.getText().trim();
         if (path.isEmpty()) {
@@ -287,7 +320,17 @@ public class FileSplitHandler {
             return;
         }
 
-        // 2. 校验分片行数
+        // 2. 校验分片行数（单位为“份”时表示按行边界均分的份数；按时间分割时单位即时间窗口）
+        TimeWindow window = null;
+        if (mode == SplitMode.LOG_TIME) {
+            window = toTimeWindow(chunkUnitComboBox.getValue());
+            if (window == null) {
+                showAlert("错误", "请选择时间窗口（分钟/小时/天）！");
+                return;
+            }
+        }
+        final TimeWindow timeWindow = window;
+        boolean byPartCount = PART_COUNT_UNIT.equals(chunkUnitComboBox.getValue());
         String lineText = chunkSizeField.getText().trim();
         int linesPerChunk;
         try {
@@ -296,7 +339,7 @@ public class FileSplitHandler {
                 throw new NumberFormatException();
             }
         } catch (NumberFormatException e) {
-            showAlert("错误", "分片行数必须是正整数！");
+            showAlert("错误", byPartCount ? "分片份数必须是正整数！" : "分片行数必须是正整数！");
             return;
         }
 
@@ -334,9 +377,15 @@ public class FileSplitHandler {
         Task<Integer> logSplitTask = new Task<Integer>() {
             @Override
             protected Integer call() throws Exception {
-                return LogSplitUtil.splitLogFile(sourceFile, outputDir, linesPerChunk, progress -> {
-                    updateProgress(progress, 1.0);
-                });
+                SplitOptions options = new SplitOptions().progress(
+                        event -> updateProgress(event.getDone(), event.getTotal()));
+                if (timeWindow != null) {
+                    return LogSplitUtil.splitLogFileByTime(sourceFile, outputDir, timeWindow, options);
+                }
+                if (byPartCount) {
+                    return LogSplitUtil.splitLogFileIntoParts(sourceFile, outputDir, linesPerChunk, options);
+                }
+                return LogSplitUtil.splitLogFile(sourceFile, outputDir, linesPerChunk, options);
             }
         };
 
@@ -363,9 +412,18 @@ public class FileSplitHandler {
 
             int showCount = Math.min(partCount, 5);
             StringBuilder examples = new StringBuilder();
+            // 按时间分割的分片以时间标签命名，列出输出目录中本次命名格式的文件（跳过校验清单等无关文件）
+            String[] timeParts = timeWindow != null
+                    ? outputDir.list((dir, name) -> name.startsWith(baseName + "_") && name.endsWith(extension))
+                    : null;
+            if (timeParts != null) {
+                java.util.Arrays.sort(timeParts);
+            }
             for (int i = 1; i <= showCount; i++) {
                 if (i > 1) examples.append(", ");
-                examples.append(String.format("%s_%02d%s", baseName, i, extension));
+                examples.append(timeParts != null && i <= timeParts.length
+                        ? timeParts[i - 1]
+                        : String.format("%s_%02d%s", baseName, i, extension));
             }
             if (partCount > 5) {
                 examples.append(", ...");
@@ -396,6 +454,19 @@ public class FileSplitHandler {
     }
 
 
+    private static TimeWindow toTimeWindow(String unit) {
+        if ("分钟".equals(unit)) {
+            return TimeWindow.MINUTE;
+        }
+        if ("小时".equals(unit)) {
+            return TimeWindow.HOUR;
+        }
+        if ("天".equals(unit)) {
+            return TimeWindow.DAY;
+        }
+        return null;
+    }
+
     private void cleanupProgressBar() {
         splitSubmitBtn.setDisable(false);
         splitInputBtn.setDisable(false);
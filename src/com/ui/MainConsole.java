@@ -1,16 +1,39 @@
 package com.ui;
 
 import com.resource.Profile;
+import com.util.CdcSplitUtil;
+import com.util.ChunkedFileChannel;
+import com.util.CopyEngine;
+import com.util.DigestManifest;
 import com.util.FileMergeUtil;
 import com.util.PathUtil;
 import com.util.FileSplitUtil;
+import com.util.LogFollower;
+import com.util.LineProcessor;
+import com.util.LogKey;
 import com.util.LogSplitUtil;
+import com.util.MergeOptions;
+import com.util.ProgressListener;
+import com.util.RecordStart;
+import com.util.SplitOptions;
+import com.util.TimeWindow;
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class MainConsole {
     public static void main(String[] args) {
+        // 带参数时以非交互命令模式运行（便于脚本与管道）
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("=== 文件分割/合并工具 ===");
@@ -19,7 +42,11 @@ public class MainConsole {
         System.out.println("3. 合并文件");
         System.out.println("4. 合并文件（指定顺序）");
         System.out.println("5. 工具简介");
-        System.out.print("请选择（按1~5）: ");
+        System.out.println("6. 内容分块分割（CDC）");
+        System.out.println("7. 按行号提取日志片段");
+        System.out.println("8. 按键哈希分区日志");
+        System.out.println("9. 跟踪日志增量分割");
+        System.out.print("请选择（按1~9）: ");
 
         int choice = scanner.nextInt();
         scanner.nextLine(); // consume newline
@@ -40,12 +67,105 @@ public class MainConsole {
             case 5:
                 showAbout();
                 break;
+            case 6:
+                splitCdc(scanner);
+                break;
+            case 7:
+                extractLines(scanner);
+                break;
+            case 8:
+                splitLogByKey(scanner);
+                break;
+            case 9:
+                followLog(scanner);
+                break;
             default:
                 System.out.println("无效选项");
                 break;
         }
     }
 
+    private static void printUsage() {
+        System.err.println("用法:");
+        System.err.println("  split-stdin <输出目录> <文件名> [分片大小，默认 100M]");
+        System.err.println("      从标准输入读取数据并按大小分片，例如: pg_dump db | java -jar xxx.jar split-stdin out db.sql 1G");
+        System.err.println("  follow <日志文件> <输出目录> <每片上限：行数如 100000 或大小如 64M> [--once]");
+        System.err.println("      跟踪日志增量分割，从输出目录中的检查点继续；--once 只处理当前新增内容后退出（适合定时任务）");
+        System.err.println("  read-range <分片目录> <偏移> <长度>");
+        System.err.println("      不合并分片，直接把原文件中 [偏移, 偏移+长度) 的字节输出到标准输出");
+        System.err.println("  bench-merge <分片目录> [轮数，默认 3]");
+        System.err.println("      依次用各拷贝引擎合并目录中的分片（输出到临时文件后删除），比较每种引擎的最短耗时");
+    }
+
+    // 命令模式入口，返回进程退出码
+    private static int runCommand(String[] args) {
+        if ("split-stdin".equals(args[0])) {
+            return splitStdin(args);
+        }
+        if ("extract-lines".equals(args[0])) {
+            return extractLinesToStdout(args);
+        }
+        if ("follow".equals(args[0])) {
+            return followCommand(args);
+        }
+        if ("read-range".equals(args[0])) {
+            return readRangeToStdout(args);
+        }
+        if ("bench-merge".equals(args[0])) {
+            return benchMerge(args);
+        }
+        printUsage();
+        return 2;
+    }
+
+    private static int splitStdin(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            printUsage();
+            return 2;
+        }
+        File outputDir = new File(PathUtil.sanitizePath(args[1]));
+        String fileName = args[2];
+        long chunkSizeBytes;
+        try {
+            chunkSizeBytes = args.length == 4 ? parseChunkSize(args[3]) : FileSplitUtil.DEFAULT_CHUNK_SIZE;
+        } catch (Exception e) {
+            System.err.println("❌ " + e.getMessage());
+            return 2;
+        }
+
+        // 直接使用标准输入的文件描述符通道，避免 System.in 的额外缓冲拷贝；进度输出到 stderr，不干扰管道
+        try (FileInputStream stdin = new FileInputStream(FileDescriptor.in)) {
+            int partCount = FileSplitUtil.splitStream(stdin.getChannel(), outputDir, fileName, chunkSizeBytes,
+                    new SplitOptions().progress(e -> {
+                        System.err.print(String.format("\r已处理: %.1f MB  %.1f MB/s  分片 #%d        ",
+                                e.getDone() / (1024.0 * 1024), e.getUnitsPerSecond() / (1024 * 1024), e.getCurrentPart()));
+                        if (e.isFinished()) {
+                            System.err.println();
+                        }
+                    }));
+            System.err.println("✅ 分割完成！共生成 " + partCount + " 个分片文件。");
+            System.err.println("输出目录: " + outputDir.getAbsolutePath());
+            return 0;
+        } catch (Exception e) {
+            System.err.println("\n❌ 分割失败: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // 解析“按份数均分”的输入，如 8份、8P、8PARTS；不是该格式时返回 -1
+    private static int parsePartCount(String input) {
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("^(\\d+)\\s*(份|P|PARTS)$")
+                .matcher(input.trim().toUpperCase());
+        if (!matcher.matches()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private static long parseChunkSize(String input) {
         if (input == null || input.trim().isEmpty()) {
             throw new IllegalArgumentException("分片大小不能为空");
@@ -98,13 +218,16 @@ public class MainConsole {
             return;
         }
 
-        // 2. 输入分片大小（单位：MB）
-        System.out.print("请输入分片大小（支持 100M, 2G, 512KB，默认单位 MB）: ");
+        // 2. 输入分片大小（单位：MB），或按份数均分
+        System.out.print("请输入分片大小（支持 100M, 2G, 512KB，默认单位 MB；输入 8份 表示均分为 8 份）: ");
         String sizeInput = scanner.nextLine().trim();
 
-        long chunkSizeBytes;
+        int partsWanted = parsePartCount(sizeInput);
+        long chunkSizeBytes = 0;
         try {
-            if (sizeInput.isEmpty()) {
+            if (partsWanted >= 0) {
+                // 按份数均分，无需分片大小
+            } else if (sizeInput.isEmpty()) {
                 chunkSizeBytes = FileSplitUtil.DEFAULT_CHUNK_SIZE; // 100 MB
             } else {
                 chunkSizeBytes = parseChunkSize(sizeInput); // ✅ 使用新解析函数
@@ -124,22 +247,42 @@ public class MainConsole {
         outputDirPath = PathUtil.sanitizePath(outputDirPath);
         File outputDir = outputDirPath.isEmpty() ? null : new File(outputDirPath);
 
-        // 4. 执行分割 + 显示进度
+        // 4. 并行线程数（可选）
+        System.out.print("请输入并行线程数（留空则单线程，0 表示按 CPU 核数）: ");
+        String workersInput = scanner.nextLine().trim();
+        int workers;
+        try {
+            workers = workersInput.isEmpty() ? 1 : Integer.parseInt(workersInput);
+            if (workers < 0) {
+                System.err.println("❌ 线程数不能为负数");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 请输入有效的整数");
+            return;
+        }
+
+        // 5. 拷贝引擎（仅单线程分割时生效）
+        CopyEngine engine = CopyEngine.CHANNEL;
+        if (workers == 1) {
+            engine = readCopyEngine(scanner);
+            if (engine == null) {
+                return;
+            }
+        }
+
+        // 6. 校验清单、7. 块压缩（可选）
+        SplitOptions options = new SplitOptions().engine(engine).workers(workers).progress(consoleProgress("B"));
+        if (!readManifestOption(scanner, options) || !readCompressOption(scanner, options)) {
+            return;
+        }
+
+        // 8. 执行分割 + 显示进度
         try {
             System.out.println("\n正在分割文件，请稍候...");
-            int partCount = FileSplitUtil.splitFile(
-                    sourceFile,
-                    outputDir,
-                    chunkSizeBytes,
-                    progress -> {
-                        // 简单进度条：覆盖同一行
-                        int percent = (int) (progress * 100);
-                        System.out.print("\r进度: " + percent + "%");
-                        if (percent == 100) {
-                            System.out.println(); // 换行
-                        }
-                    }
-            );
+            int partCount = partsWanted >= 0
+                    ? FileSplitUtil.splitFileIntoParts(sourceFile, outputDir, partsWanted, options)
+                    : FileSplitUtil.splitFile(sourceFile, outputDir, chunkSizeBytes, options);
 
             System.out.println("✅ 分割完成！共生成 " + partCount + " 个分片文件。");
             if (outputDir != null) {
@@ -154,8 +297,50 @@ public class MainConsole {
 
     }
 
+    private static void splitCdc(Scanner scanner) {
+        System.out.print("请输入要分割的文件路径: ");
+        File sourceFile = new File(PathUtil.sanitizePath(scanner.nextLine().trim()));
+        if (!sourceFile.exists() || !sourceFile.isFile()) {
+            System.err.println("❌ 错误：文件不存在或不是有效文件: " + sourceFile.getPath());
+            return;
+        }
+
+        System.out.print("请输入平均分片大小（支持 512K, 4M，默认 4M；最小/最大分片为其 1/4 与 4 倍）: ");
+        String sizeInput = scanner.nextLine().trim();
+        long avgSize;
+        try {
+            avgSize = sizeInput.isEmpty() ? CdcSplitUtil.DEFAULT_AVG_SIZE : parseChunkSize(sizeInput);
+            if (avgSize < 4) {
+                System.err.println("❌ 平均分片大小过小");
+                return;
+            }
+        } catch (Exception e) {
+            System.err.println("❌ " + e.getMessage());
+            return;
+        }
+
+        System.out.print("请输入输出目录（留空则使用源文件所在目录）: ");
+        String outputDirPath = PathUtil.sanitizePath(scanner.nextLine().trim());
+        File outputDir = outputDirPath.isEmpty() ? null : new File(outputDirPath);
+
+        SplitOptions options = new SplitOptions().workers(0).progress(consoleProgress("B"));
+        if (!readManifestOption(scanner, options) || !readCompressOption(scanner, options)) {
+            return;
+        }
+
+        try {
+            System.out.println("\n正在按内容分块，请稍候...");
+            int partCount = CdcSplitUtil.splitFile(sourceFile, outputDir, avgSize / 4, avgSize, avgSize * 4, options);
+            System.out.println("✅ 分割完成！共生成 " + partCount + " 个分片文件。");
+            File actualDir = outputDir != null ? outputDir : sourceFile.getAbsoluteFile().getParentFile();
+            System.out.println("输出目录: " + actualDir.getAbsolutePath());
+        } catch (Exception e) {
+            System.err.println("\n❌ 分割失败: " + e.getMessage());
+        }
+    }
+
     private static void splitLog(Scanner scanner) {
-        System.out.print("请输入要分割的日志文件路径（必须是文本文件）: ");
+        System.out.print("请输入要分割的日志文件路径（文本文件，按行数分割时也可以是 gzip 压缩文件）: ");
         String logPath = scanner.nextLine().trim();
         logPath = PathUtil.sanitizePath(logPath);
         File logFile = new File(logPath);
@@ -165,18 +350,48 @@ public class MainConsole {
             return;
         }
 
-        System.out.print("请输入每个分片的行数（例如 10000）: ");
+        System.out.print("请输入每个分片的行数（例如 10000；输入 8份 表示按行边界均分为 8 份；输入 64M 表示每片不超过 64 MB；"
+                + "输入 hour / minute / day 表示按行首时间戳每小时/分钟/天一个分片）: ");
         String linesInput = scanner.nextLine().trim();
-        int linesPerChunk;
-        try {
-            linesPerChunk = Integer.parseInt(linesInput);
-            if (linesPerChunk <= 0) {
-                System.err.println("❌ 行数必须大于 0");
+        int partsWanted = parsePartCount(linesInput);
+        int linesPerChunk = 0;
+        long maxBytes = 0;
+        TimeWindow window = null;
+        if (linesInput.matches("(?i)^(minute|hour|day|m|h|d)$")) {
+            window = TimeWindow.fromName(linesInput);
+        } else if (partsWanted < 0 && linesInput.toUpperCase().matches("^\\d+[KMGT]B?$")) {
+            // 带单位时按字节上限分割，行数上限可选
+            try {
+                maxBytes = parseChunkSize(linesInput);
+            } catch (IllegalArgumentException e) {
+                System.err.println("❌ " + e.getMessage());
+                return;
+            }
+            System.out.print("每个分片最多行数（直接回车表示不限制）: ");
+            String maxLinesInput = scanner.nextLine().trim();
+            if (!maxLinesInput.isEmpty()) {
+                try {
+                    linesPerChunk = Integer.parseInt(maxLinesInput);
+                    if (linesPerChunk <= 0) {
+                        System.err.println("❌ 行数必须大于 0");
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("❌ 请输入有效的整数");
+                    return;
+                }
+            }
+        } else if (partsWanted < 0) {
+            try {
+                linesPerChunk = Integer.parseInt(linesInput);
+                if (linesPerChunk <= 0) {
+                    System.err.println("❌ 行数必须大于 0");
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("❌ 请输入有效的整数");
                 return;
             }
-        } catch (NumberFormatException e) {
-            System.err.println("❌ 请输入有效的整数");
-            return;
         }
 
         System.out.print("请输入输出目录（必须为空或不存在，程序将自动创建）: ");
@@ -188,20 +403,36 @@ public class MainConsole {
         }
         File outputDir = new File(outDirPath);
 
+        // 多核并行统计行边界与拷贝
+        SplitOptions options = new SplitOptions().workers(0).progress(consoleProgress("B"));
+        if (!readManifestOption(scanner, options) || !readCompressOption(scanner, options)) {
+            return;
+        }
+        if (window == null && !readRecordStartOption(scanner, options)) {
+            return;
+        }
+        if (partsWanted < 0 && window == null && options.getRecordStart() == null
+                && !readLineProcessorOption(scanner, options)) {
+            return;
+        }
+        if (partsWanted < 0 && maxBytes == 0 && window == null && options.getRecordStart() == null
+                && options.getLineProcessor() == null) {
+            System.out.print("是否使用行索引（同一文件反复按不同行数分割时更快，y/N）: ");
+            options.lineIndex("y".equalsIgnoreCase(scanner.nextLine().trim()));
+        }
+
         try {
             System.out.println("\n正在分割日志文件，请稍候...");
-            int partCount = LogSplitUtil.splitLogFile(
-                    logFile,
-                    outputDir,
-                    linesPerChunk,
-                    progress -> {
-                        int percent = (int) (progress * 100);
-                        System.out.print("\r进度: " + percent + "%");
-                        if (percent == 100) {
-                            System.out.println();
-                        }
-                    }
-            );
+            int partCount;
+            if (window != null) {
+                partCount = LogSplitUtil.splitLogFileByTime(logFile, outputDir, window, options);
+            } else if (partsWanted >= 0) {
+                partCount = LogSplitUtil.splitLogFileIntoParts(logFile, outputDir, partsWanted, options);
+            } else if (maxBytes > 0) {
+                partCount = LogSplitUtil.splitLogFileBySize(logFile, outputDir, maxBytes, linesPerChunk, options);
+            } else {
+                partCount = LogSplitUtil.splitLogFile(logFile, outputDir, linesPerChunk, options);
+            }
 
             if (partCount == 0) {
                 System.out.println("⚠️ 文件为空，未生成分片。");
@@ -209,6 +440,11 @@ public class MainConsole {
                 System.out.println("✅ 日志分割完成！共生成 " + partCount + " 个分片文件。");
                 System.out.println("输出目录: " + outputDir.getAbsolutePath());
             }
+            LineProcessor processor = options.getLineProcessor();
+            if (processor != null) {
+                System.out.println("保留 " + processor.getLinesKept() + " 行（改写 " + processor.getLinesModified()
+                        + " 行），丢弃 " + processor.getLinesDropped() + " 行");
+            }
 
         } catch (Exception e) {
             System.err.println("\n❌ 日志分割失败: " + e.getMessage());
@@ -238,6 +474,9 @@ public class MainConsole {
             });
 
             System.out.println("✅ 合并成功！完整文件: " + mergedFile.getAbsolutePath());
+            if (new File(folder, DigestManifest.DEFAULT_FILE_NAME).isFile()) {
+                System.out.println("✅ 已按校验清单 " + DigestManifest.DEFAULT_FILE_NAME + " 校验全部分片");
+            }
 
         } catch (Exception e) {
             System.err.println("\n❌ 合并失败: " + e.getMessage());
@@ -273,17 +512,23 @@ public class MainConsole {
         String outDirInput = PathUtil.sanitizePath(scanner.nextLine().trim());
         File outputDir = outDirInput.isEmpty() ? chunkDir : new File(outDirInput);
 
+        CopyEngine engine = readCopyEngine(scanner);
+        if (engine == null) {
+            return;
+        }
+        System.out.print("是否多线程并行合并（各分片同时写入输出文件中的对应位置，适合 SSD / 条带化存储上的大量分片，y/N）: ");
+        boolean parallel = "y".equalsIgnoreCase(scanner.nextLine().trim());
+        System.out.print("是否可续传（先写入 .merging 临时文件并记录进度，中断后重新执行同样的合并会从断点继续，y/N）: ");
+        boolean resumable = "y".equalsIgnoreCase(scanner.nextLine().trim());
+
         try {
             System.out.println("\n正在合并...");
             File result = FileMergeUtil.mergeWithManifestToDir(
                     chunkDir,
                     manifestFile,
                     outputDir,
-                    progress -> {
-                        int p = (int) (progress * 100);
-                        System.out.print("\r进度: " + p + "%");
-                        if (p == 100) System.out.println();
-                    }
+                    new MergeOptions().engine(engine).parallel(parallel).resumable(resumable)
+                            .progress(consoleProgress("B"))
             );
             System.out.println("✅ 合并成功: " + result.getAbsolutePath());
         } catch (Exception e) {
@@ -291,6 +536,459 @@ public class MainConsole {
         }
     }
 
+    // 控制台进度：覆盖同一行，显示百分比、吞吐与预计剩余时间
+    private static ProgressListener consoleProgress(String unit) {
+        return e -> {
+            StringBuilder sb = new StringBuilder("\r进度: ");
+            sb.append((int) (e.getFraction() * 100)).append('%');
+            if ("B".equals(unit)) {
+                sb.append(String.format("  %.1f MB/s", e.getUnitsPerSecond() / (1024 * 1024)));
+            } else {
+                sb.append(String.format("  %.0f %s/s", e.getUnitsPerSecond(), unit));
+            }
+            if (e.getCurrentPart() > 0) {
+                sb.append("  分片 #").append(e.getCurrentPart());
+            }
+            if (e.getEtaMillis() > 0) {
+                sb.append("  剩余 ").append(e.getEtaMillis() / 1000).append(" 秒");
+            }
+            sb.append("        "); // 覆盖上一次输出的残留字符
+            System.out.print(sb);
+            if (e.isFinished()) {
+                System.out.println(); // 换行
+            }
+        };
+    }
+
+    // 读取校验清单选项并写入 options，输入非法时返回 false
+    private static boolean readManifestOption(Scanner scanner, SplitOptions options) {
+        System.out.print("是否生成校验清单（留空不生成，crc = CRC32C，sha = CRC32C + SHA-256）: ");
+        String input = scanner.nextLine().trim().toLowerCase();
+        switch (input) {
+            case "":
+                return true;
+            case "crc":
+                options.manifest(true);
+                return true;
+            case "sha":
+                options.sha256(true);
+                return true;
+            default:
+                System.err.println("❌ 无效选项: " + input);
+                return false;
+        }
+    }
+
+    // 读取块压缩选项并写入 options，输入非法时返回 false
+    // 询问多行记录的起始判断，输入无效时返回 false
+    private static boolean readRecordStartOption(Scanner scanner, SplitOptions options) {
+        System.out.print("多行记录（堆栈不拆开）：直接回车按单行；ts = 以时间戳开头的行开始新记录；"
+                + "indent = 非缩进行开始新记录；其他输入视为行首正则: ");
+        String input = scanner.nextLine().trim();
+        try {
+            if ("ts".equalsIgnoreCase(input)) {
+                options.recordStart(RecordStart.timestamp());
+            } else if ("indent".equalsIgnoreCase(input)) {
+                options.recordStart(RecordStart.notIndented());
+            } else if (!input.isEmpty()) {
+                options.recordStart(RecordStart.regex(input));
+            }
+            return true;
+        } catch (java.util.regex.PatternSyntaxException e) {
+            System.err.println("❌ 正则表达式无效: " + e.getDescription());
+            return false;
+        }
+    }
+
+    // 逐条读取过滤与改写规则（空行结束），输入无效时返回 false
+    private static boolean readLineProcessorOption(Scanner scanner, SplitOptions options) {
+        System.out.println("逐行过滤与改写（每行一条规则，直接回车结束；不输入规则则原样分割）：");
+        System.out.println("  +文本 只保留包含文本的行；-文本 丢弃包含文本的行；/正则/ 只保留匹配的行；!/正则/ 丢弃匹配的行；");
+        System.out.println("  s/文本/替换/ 替换文本；r/正则/替换/ 替换匹配内容；email 把邮箱替换为 ***");
+        LineProcessor processor = new LineProcessor();
+        while (true) {
+            System.out.print("规则: ");
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                break;
+            }
+            try {
+                if ("email".equalsIgnoreCase(input)) {
+                    processor.redactEmails("***");
+                } else if (input.length() > 1 && input.charAt(0) == '+') {
+                    processor.keepContaining(input.substring(1));
+                } else if (input.length() > 1 && input.charAt(0) == '-') {
+                    processor.dropContaining(input.substring(1));
+                } else if (input.length() > 2 && input.startsWith("/") && input.endsWith("/")) {
+                    processor.keepMatching(input.substring(1, input.length() - 1));
+                } else if (input.length() > 3 && input.startsWith("!/") && input.endsWith("/")) {
+                    processor.dropMatching(input.substring(2, input.length() - 1));
+                } else if (input.startsWith("s/") && input.endsWith("/") && input.split("/", -1).length == 4) {
+                    String[] parts = input.split("/", -1);
+                    processor.replace(parts[1], parts[2]);
+                } else if (input.startsWith("r/") && input.endsWith("/") && input.lastIndexOf('/') > 2) {
+                    String body = input.substring(2, input.length() - 1);
+                    int slash = body.lastIndexOf('/');
+                    processor.replaceMatching(body.substring(0, slash), body.substring(slash + 1));
+                } else {
+                    System.err.println("❌ 无效规则: " + input);
+                    return false;
+                }
+            } catch (java.util.regex.PatternSyntaxException e) {
+                System.err.println("❌ 正则表达式无效: " + e.getDescription());
+                return false;
+            } catch (IllegalArgumentException e) {
+                System.err.println("❌ " + e.getMessage());
+                return false;
+            }
+        }
+        if (!processor.isEmpty()) {
+            options.lineProcessor(processor);
+        }
+        return true;
+    }
+
+    private static boolean readCompressOption(Scanner scanner, SplitOptions options) {
+        System.out.print("是否块压缩分片（留空不压缩，输入 1~9 为压缩等级，合并时自动解压；"
+                + "输入 gz1~gz9 写出 .gz 分片，可直接用 gzip / zcat 解压）: ");
+        String input = scanner.nextLine().trim();
+        if (input.isEmpty()) {
+            return true;
+        }
+        try {
+            if (input.regionMatches(true, 0, "gz", 0, 2)) {
+                options.gzip(Integer.parseInt(input.substring(2)));
+            } else {
+                options.compress(Integer.parseInt(input));
+            }
+            return true;
+        } catch (IllegalArgumentException e) { // 含 NumberFormatException
+            System.err.println("❌ 无效压缩等级: " + input);
+            return false;
+        }
+    }
+
+    // 读取拷贝引擎，输入非法时返回 null
+    private static CopyEngine readCopyEngine(Scanner scanner) {
+        System.out.print("请选择拷贝引擎（stream / channel / mmap，留空默认 channel）: ");
+        String engineInput = scanner.nextLine().trim();
+        if (engineInput.isEmpty()) {
+            return CopyEngine.CHANNEL;
+        }
+        try {
+            return CopyEngine.fromName(engineInput);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int extractLinesToStdout(String[] args) {
+        if (args.length != 4) {
+            printUsage();
+            return 2;
+        }
+        try (FileOutputStream stdout = new FileOutputStream(FileDescriptor.out)) {
+            LogSplitUtil.extractLines(new File(PathUtil.sanitizePath(args[1])),
+                    Long.parseLong(args[2]), Long.parseLong(args[3]), stdout.getChannel());
+            return 0;
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 行号必须是整数");
+            return 2;
+        } catch (Exception e) {
+            System.err.println("❌ 提取失败: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int readRangeToStdout(String[] args) {
+        if (args.length != 4) {
+            printUsage();
+            return 2;
+        }
+        File folder = new File(PathUtil.sanitizePath(args[1]));
+        File manifestFile = new File(folder, DigestManifest.DEFAULT_FILE_NAME);
+        try (ChunkedFileChannel in = manifestFile.isFile()
+                ? ChunkedFileChannel.open(folder, DigestManifest.read(manifestFile))
+                : ChunkedFileChannel.open(folder);
+             FileOutputStream stdout = new FileOutputStream(FileDescriptor.out)) {
+            long position = Long.parseLong(args[2]);
+            long remaining = Long.parseLong(args[3]);
+            if (position < 0 || remaining < 0) {
+                System.err.println("❌ 偏移和长度不能为负数");
+                return 2;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int n = in.read(buffer, position);
+                if (n < 0) {
+                    break;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    stdout.getChannel().write(buffer);
+                }
+                position += n;
+                remaining -= n;
+            }
+            return 0;
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 偏移和长度必须是整数");
+            return 2;
+        } catch (Exception e) {
+            System.err.println("❌ 读取失败: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // 各引擎轮流合并同一组分片，取每种引擎的最短耗时，减少页缓存冷热不同带来的偏差
+    private static int benchMerge(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            printUsage();
+            return 2;
+        }
+        int rounds;
+        try {
+            rounds = args.length == 3 ? Integer.parseInt(args[2]) : 3;
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 轮数必须是整数");
+            return 2;
+        }
+        if (rounds <= 0) {
+            System.err.println("❌ 轮数必须大于 0");
+            return 2;
+        }
+        File output = null;
+        try {
+            File folder = new File(PathUtil.sanitizePath(args[1]));
+            List<File> parts = FileMergeUtil.findChunkGroup(folder);
+            output = new File(folder, FileMergeUtil.inferOriginalFileName(parts) + ".bench");
+            CopyEngine[] engines = CopyEngine.values();
+            long[] best = new long[engines.length];
+            Arrays.fill(best, Long.MAX_VALUE);
+            long size = 0;
+            for (int round = 1; round <= rounds; round++) {
+                for (int i = 0; i < engines.length; i++) {
+                    long start = System.nanoTime();
+                    FileMergeUtil.mergeFilesInOrder(parts, output, new MergeOptions().engine(engines[i]));
+                    long elapsed = System.nanoTime() - start;
+                    best[i] = Math.min(best[i], elapsed);
+                    size = output.length();
+                    System.err.printf("第 %d 轮 %-7s %.2f s%n", round, engines[i], elapsed / 1e9);
+                }
+            }
+            System.out.printf("分片 %d 个，共 %.1f MB，%d 轮取最短耗时：%n", parts.size(), size / (1024.0 * 1024), rounds);
+            for (int i = 0; i < engines.length; i++) {
+                System.out.printf("  %-7s %.2f s  %.1f MB/s%n", engines[i], best[i] / 1e9,
+                        size / (1024.0 * 1024) / (best[i] / 1e9));
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败: " + e.getMessage());
+            return 1;
+        } finally {
+            if (output != null) {
+                output.delete();
+            }
+        }
+    }
+
+    private static int followCommand(String[] args) {
+        boolean once = args.length == 5 && "--once".equals(args[4]);
+        if (args.length != 4 && !once) {
+            printUsage();
+            return 2;
+        }
+        long[] limits = parseFollowLimit(args[3]);
+        if (limits == null) {
+            return 2;
+        }
+        try (LogFollower follower = LogFollower.open(new File(PathUtil.sanitizePath(args[1])),
+                new File(PathUtil.sanitizePath(args[2])), (int) limits[0], limits[1], null)) {
+            if (once) {
+                long bytes = follower.poll();
+                System.err.println("✅ 处理新增 " + bytes + " 字节，已生成 " + follower.getPartCount() + " 个分片");
+                return 0;
+            }
+            // Ctrl+C 时让跟踪循环正常结束，检查点已在每次处理后保存
+            Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                follower.stop();
+                try {
+                    main.join(5000);
+                } catch (InterruptedException ignored) {
+                    // 退出中，无需处理
+                }
+            }));
+            System.err.println("正在跟踪 " + args[1] + "，按 Ctrl+C 停止");
+            follower.follow(LogFollower.DEFAULT_POLL_MILLIS);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("❌ 跟踪失败: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // 解析跟踪模式的分片上限：纯数字为行数，带单位为字节数；返回 {行数, 字节数}，非法时返回 null
+    private static long[] parseFollowLimit(String input) {
+        try {
+            if (input.toUpperCase().matches("^\\d+[KMGT]B?$")) {
+                return new long[]{0, parseChunkSize(input)};
+            }
+            int lines = Integer.parseInt(input.trim());
+            if (lines <= 0) {
+                System.err.println("❌ 行数必须大于 0");
+                return null;
+            }
+            return new long[]{lines, 0};
+        } catch (IllegalArgumentException e) { // 含 NumberFormatException
+            System.err.println("❌ 分片上限格式错误（如 100000 或 64M）: " + input);
+            return null;
+        }
+    }
+
+    private static void followLog(Scanner scanner) {
+        System.out.print("请输入要跟踪的日志文件路径: ");
+        File logFile = new File(PathUtil.sanitizePath(scanner.nextLine().trim()));
+        if (!logFile.isFile()) {
+            System.err.println("❌ 错误：文件不存在或不是有效文件: " + logFile.getPath());
+            return;
+        }
+
+        System.out.print("请输入每个分片的上限（行数如 100000，或大小如 64M）: ");
+        long[] limits = parseFollowLimit(scanner.nextLine().trim());
+        if (limits == null) {
+            return;
+        }
+
+        System.out.print("请输入输出目录（已有检查点时从上次的位置继续）: ");
+        String outDirPath = PathUtil.sanitizePath(scanner.nextLine().trim());
+        if (outDirPath.isEmpty()) {
+            System.err.println("❌ 输出目录不能为空");
+            return;
+        }
+
+        try (LogFollower follower = LogFollower.open(logFile, new File(outDirPath), (int) limits[0], limits[1],
+                new SplitOptions().progress(e -> System.out.print(String.format("\r已处理: %.1f MB  分片 #%d        ",
+                        e.getDone() / (1024.0 * 1024), e.getCurrentPart()))))) {
+            Thread worker = new Thread(() -> {
+                try {
+                    follower.follow(LogFollower.DEFAULT_POLL_MILLIS);
+                } catch (Exception e) {
+                    System.err.println("\n❌ 跟踪失败: " + e.getMessage());
+                }
+            }, "LogFollower");
+            worker.start();
+            System.out.println("正在跟踪，按回车停止...");
+            scanner.nextLine();
+            follower.stop();
+            worker.join();
+            System.out.println("\n✅ 已停止，共生成 " + follower.getPartCount() + " 个分片，处理到偏移 "
+                    + follower.getOffset());
+        } catch (Exception e) {
+            System.err.println("❌ 跟踪失败: " + e.getMessage());
+        }
+    }
+
+    private static void extractLines(Scanner scanner) {
+        System.out.print("请输入日志文件路径: ");
+        File sourceFile = new File(PathUtil.sanitizePath(scanner.nextLine().trim()));
+        if (!sourceFile.isFile()) {
+            System.err.println("❌ 错误：文件不存在或不是有效文件: " + sourceFile.getPath());
+            return;
+        }
+
+        System.out.print("请输入行号范围（从 1 开始，含两端，例如 5000000-5010000）: ");
+        String[] range = scanner.nextLine().trim().split("\\s*-\\s*");
+        long firstLine;
+        long lastLine;
+        try {
+            firstLine = Long.parseLong(range[0]);
+            lastLine = range.length > 1 ? Long.parseLong(range[1]) : firstLine;
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 行号格式错误");
+            return;
+        }
+
+        System.out.print("请输入输出文件路径: ");
+        String outputPath = PathUtil.sanitizePath(scanner.nextLine().trim());
+        if (outputPath.isEmpty()) {
+            System.err.println("❌ 输出文件不能为空");
+            return;
+        }
+
+        try {
+            long bytes = LogSplitUtil.extractLines(sourceFile, firstLine, lastLine, new File(outputPath));
+            System.out.println("✅ 提取完成，共写出 " + bytes + " 字节: " + new File(outputPath).getAbsolutePath());
+        } catch (Exception e) {
+            System.err.println("❌ 提取失败: " + e.getMessage());
+        }
+    }
+
+    private static void splitLogByKey(Scanner scanner) {
+        System.out.print("请输入日志文件路径: ");
+        File logFile = new File(PathUtil.sanitizePath(scanner.nextLine().trim()));
+        if (!logFile.isFile()) {
+            System.err.println("❌ 错误：文件不存在或不是有效文件: " + logFile.getPath());
+            return;
+        }
+
+        System.out.print("请输入分区数（例如 16）: ");
+        int partitions;
+        try {
+            partitions = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 请输入有效的整数");
+            return;
+        }
+
+        System.out.print("请输入键的位置（字段序号，从 0 开始，如 3；以 re: 开头表示正则并取第 1 组，如 re:tenant=(\\w+)）: ");
+        String keyInput = scanner.nextLine().trim();
+        LogKey key;
+        try {
+            if (keyInput.startsWith("re:")) {
+                key = LogKey.regex(keyInput.substring(3), 1);
+            } else {
+                int index = Integer.parseInt(keyInput);
+                System.out.print("字段分隔符（直接回车表示按空白分隔，也可输入 , | 等单个字符）: ");
+                String delimiter = scanner.nextLine();
+                key = delimiter.isEmpty() ? LogKey.field(index) : LogKey.field(index, delimiter.charAt(0));
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("❌ 字段序号必须是整数");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            return;
+        }
+
+        System.out.print("请输入输出目录（必须为空或不存在，程序将自动创建）: ");
+        String outDirPath = PathUtil.sanitizePath(scanner.nextLine().trim());
+        if (outDirPath.isEmpty()) {
+            System.err.println("❌ 输出目录不能为空");
+            return;
+        }
+        File outputDir = new File(outDirPath);
+
+        SplitOptions options = new SplitOptions().progress(consoleProgress("B"));
+        if (!readManifestOption(scanner, options) || !readCompressOption(scanner, options)) {
+            return;
+        }
+        try {
+            System.out.println("\n正在分区，请稍候...");
+            int partCount = LogSplitUtil.splitLogFileByKey(logFile, outputDir, partitions, key, options);
+            if (partCount == 0) {
+                System.out.println("⚠️ 文件为空，未生成分区文件。");
+            } else {
+                System.out.println("✅ 分区完成！共生成 " + partCount + " 个分区文件。");
+                System.out.println("输出目录: " + outputDir.getAbsolutePath());
+            }
+        } catch (Exception e) {
+            System.err.println("\n❌ 分区失败: " + e.getMessage());
+        }
+    }
+
     private static void showAbout() {
         String aboutText = String.format(
                 "%s %s\n" +
@@ -298,6 +996,7 @@ public class MainConsole {
 
                         "【功能说明】\n" +
                         "• 文件分割：支持按字节（KB/MB/GB）或按行数分割大文件\n" +
+                        "• 内容分块：按内容决定分片边界，文件局部改动只影响少数分片\n" +
                         "• 文件合并：自动识别分片文件（xxx_01.ext 格式）并合并\n" +
                         "• 自定义输出：分片可输出到任意目录（日志分割允许非空目录）\n" +
                         "• 顺序控制：通过清单文件（!merge_order.txt）自定义合并顺序\n\n" +
@@ -0,0 +1,305 @@
+package com.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 块压缩分片的读取端。文件格式（整数均为大端）：
+ * <pre>
+ * 头部  魔数 "AFCBLK01"(8)  块大小(int)
+ * 数据  块 0 | 块 1 | ...           每块为独立的 zlib 数据；压缩长度等于原始长度时为原样存储
+ * 索引  块数(int)  [压缩长度(int) 原始长度(int)] × 块数
+ * 尾部  索引偏移(long)  原始总长度(long)  魔数 "AFCBLK01"(8)
+ * </pre>
+ * 借助块索引可以只解压目标位置所在的块实现随机读取，也可以多线程并行解压整个文件。
+ * {@link #read} 非线程安全；{@link #decompressTo} 内部按块并行，各任务只使用位置读写。
+ */
+public class BlockCompressedFile implements Closeable {
+
+    private static final byte[] MAGIC = "AFCBLK01".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 4;
+    private static final int FOOTER_SIZE = 8 + 8 + MAGIC.length;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long[] compressedOffsets;   // 第 i 块在文件中的偏移，末尾多一项为索引偏移
+    private final long[] uncompressedOffsets; // 第 i 块在原始数据中的偏移，末尾多一项为原始总长度
+
+    // 最近一次随机读取解压出的块
+    private int cachedBlock = -1;
+    private byte[] cachedData;
+
+    private BlockCompressedFile(FileChannel channel, boolean ownsChannel) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+
+        long size = channel.size();
+        if (size < HEADER_SIZE + 4 + FOOTER_SIZE) {
+            throw new IOException("块压缩文件过短");
+        }
+        ByteBuffer header = readAt(HEADER_SIZE, 0);
+        ByteBuffer footer = readAt(FOOTER_SIZE, size - FOOTER_SIZE);
+        if (!hasMagic(header, 0) || !hasMagic(footer, 16)) {
+            throw new IOException("不是块压缩文件（魔数不匹配）");
+        }
+        long indexOffset = footer.getLong(0);
+        long totalLength = footer.getLong(8);
+        if (indexOffset < HEADER_SIZE || indexOffset > size - FOOTER_SIZE - 4) {
+            throw new IOException("块索引偏移无效: " + indexOffset);
+        }
+
+        long indexSize = size - FOOTER_SIZE - indexOffset;
+        if (indexSize > Integer.MAX_VALUE) {
+            throw new IOException("块索引过大");
+        }
+        ByteBuffer index = readAt((int) indexSize, indexOffset);
+        int blockCount = index.getInt();
+        if (blockCount < 0 || indexSize != 4 + 8L * blockCount) {
+            throw new IOException("块索引长度与块数不符");
+        }
+        compressedOffsets = new long[blockCount + 1];
+        uncompressedOffsets = new long[blockCount + 1];
+        compressedOffsets[0] = HEADER_SIZE;
+        for (int i = 0; i < blockCount; i++) {
+            int compressed = index.getInt();
+            int uncompressed = index.getInt();
+            if (compressed <= 0 || uncompressed <= 0 || compressed > uncompressed) {
+                throw new IOException(String.format("第 %d 块索引无效", i));
+            }
+            compressedOffsets[i + 1] = compressedOffsets[i] + compressed;
+            uncompressedOffsets[i + 1] = uncompressedOffsets[i] + uncompressed;
+        }
+        if (compressedOffsets[blockCount] != indexOffset || uncompressedOffsets[blockCount] != totalLength) {
+            throw new IOException("块索引与文件尾部记录不一致");
+        }
+    }
+
+    /**
+     * 打开块压缩文件，文件格式不符时抛出 IOException
+     */
+    public static BlockCompressedFile open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new BlockCompressedFile(channel, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 基于已打开的通道读取，关闭本对象时不关闭该通道
+     */
+    public static BlockCompressedFile open(FileChannel channel) throws IOException {
+        return new BlockCompressedFile(channel, false);
+    }
+
+    /**
+     * 判断文件是否为块压缩格式（只检查首尾魔数，不读取数据）
+     */
+    public static boolean isBlockCompressed(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return isBlockCompressed(channel);
+        }
+    }
+
+    public static boolean isBlockCompressed(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + 4 + FOOTER_SIZE) {
+            return false;
+        }
+        return hasMagic(readFully(channel, MAGIC.length, 0), 0)
+                && hasMagic(readFully(channel, MAGIC.length, size - MAGIC.length), 0);
+    }
+
+    /** 原始（解压后）数据的总长度 */
+    public long length() {
+        return uncompressedOffsets[uncompressedOffsets.length - 1];
+    }
+
+    public int getBlockCount() {
+        return compressedOffsets.length - 1;
+    }
+
+    /**
+     * 随机读取：从原始数据的 position 处读取最多 len 个字节，只解压涉及到的块
+     * @return 实际读取的字节数，position 超出末尾时返回 -1
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("读取位置不能为负数");
+        }
+        if (position >= length()) {
+            return -1;
+        }
+        int total = 0;
+        while (len > 0 && position < length()) {
+            int block = findBlock(position);
+            if (block != cachedBlock) {
+                cachedData = decompressBlock(block);
+                cachedBlock = block;
+            }
+            int inBlock = (int) (position - uncompressedOffsets[block]);
+            int n = Math.min(len, cachedData.length - inBlock);
+            System.arraycopy(cachedData, inBlock, b, off, n);
+            position += n;
+            off += n;
+            len -= n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 把全部原始数据解压写入 out 的 outPosition 处。提供线程池时各块并行解压，
+     * 同时在途的块数不超过 maxPending；每个任务以位置写写出自己的块，互不依赖写出顺序
+     * @param pool 解压线程池，为 null 时在调用线程内解压
+     * @param progress 已写出的原始字节数增量回调（可能在工作线程中调用）
+     */
+    public void decompressTo(FileChannel out, long outPosition, ExecutorService pool, int maxPending,
+                             LongConsumer progress) throws IOException {
+        int blockCount = getBlockCount();
+        if (pool == null) {
+            for (int i = 0; i < blockCount; i++) {
+                writeBlock(out, outPosition, i, progress);
+            }
+            return;
+        }
+
+        Deque<Future<Void>> pending = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < blockCount; i++) {
+                final int block = i;
+                pending.addLast(pool.submit(() -> {
+                    writeBlock(out, outPosition, block, progress);
+                    return null;
+                }));
+                if (pending.size() > Math.max(1, maxPending)) {
+                    FileSplitUtil.awaitAll(Collections.singletonList(pending.removeFirst()));
+                }
+            }
+            FileSplitUtil.awaitAll(new ArrayList<>(pending));
+            pending.clear();
+        } finally {
+            for (Future<Void> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        cachedData = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private void writeBlock(FileChannel out, long outPosition, int block, LongConsumer progress) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(decompressBlock(block));
+        long pos = outPosition + uncompressedOffsets[block];
+        while (data.hasRemaining()) {
+            pos += out.write(data, pos);
+        }
+        if (progress != null) {
+            progress.accept(data.capacity());
+        }
+    }
+
+    private byte[] decompressBlock(int block) throws IOException {
+        int compressedLength = (int) (compressedOffsets[block + 1] - compressedOffsets[block]);
+        int length = (int) (uncompressedOffsets[block + 1] - uncompressedOffsets[block]);
+        ByteBuffer raw = readAt(compressedLength, compressedOffsets[block]);
+        if (compressedLength == length) {
+            return raw.array(); // 原样存储的块
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(raw.array(), 0, compressedLength);
+            byte[] data = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int r = inflater.inflate(data, n, length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += r;
+            }
+            if (n != length || !inflater.finished()) {
+                throw new IOException(String.format("第 %d 块解压后长度不符（期望 %d，实际 %d）", block, length, n));
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("第 %d 块数据损坏: %s", block, e.getMessage()), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // 二分查找原始位置所在的块
+    private int findBlock(long position) {
+        int i = Arrays.binarySearch(uncompressedOffsets, position);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private ByteBuffer readAt(int length, long position) throws IOException {
+        return readFully(channel, length, position);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("块压缩文件意外结束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(offset + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 供写出端使用：文件头
+    static byte[] header(int blockSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.put(MAGIC).putInt(blockSize);
+        return buffer.array();
+    }
+
+    // 供写出端使用：块索引 + 尾部
+    static byte[] indexAndFooter(int[] compressedLengths, int[] uncompressedLengths, int blockCount,
+                                 long indexOffset, long totalLength) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * blockCount + FOOTER_SIZE);
+        buffer.putInt(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            buffer.putInt(compressedLengths[i]).putInt(uncompressedLengths[i]);
+        }
+        buffer.putLong(indexOffset).putLong(totalLength).put(MAGIC);
+        return buffer.array();
+    }
+}
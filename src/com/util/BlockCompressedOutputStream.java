@@ -0,0 +1,257 @@
+package com.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * 块压缩输出：把写入的数据切成固定大小的块，每块独立压缩，写出格式见 {@link BlockCompressedFile}
+ * （包内也用于写出多成员 gzip，见 {@link GzipUtil}）。
+ * 提供线程池时各块并行压缩，按提交顺序依次写出；同时在途的块数有上限，内存占用与文件大小无关。
+ * 本类自身非线程安全。
+ */
+public class BlockCompressedOutputStream extends OutputStream implements WritableByteChannel {
+
+    /** 默认块大小：块越小随机读取越快，deflate 窗口只有 32 KB，块大小对压缩率影响很小 */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /** 块格式：文件头、单块压缩结果与文件尾 */
+    interface Format {
+        byte[] header(int blockSize);
+
+        byte[] compress(byte[] data, int length, int level);
+
+        byte[] trailer(int[] compressedLengths, int[] uncompressedLengths, int blockCount, long indexOffset,
+                       long totalLength);
+    }
+
+    /** 带块索引的 {@link BlockCompressedFile} 格式 */
+    static final Format INDEXED = new Format() {
+        @Override
+        public byte[] header(int blockSize) {
+            return BlockCompressedFile.header(blockSize);
+        }
+
+        @Override
+        public byte[] compress(byte[] data, int length, int level) {
+            return BlockCompressedOutputStream.compress(data, length, level);
+        }
+
+        @Override
+        public byte[] trailer(int[] compressedLengths, int[] uncompressedLengths, int blockCount, long indexOffset,
+                              long totalLength) {
+            return BlockCompressedFile.indexAndFooter(compressedLengths, uncompressedLengths, blockCount,
+                    indexOffset, totalLength);
+        }
+    };
+
+    private final OutputStream out;
+    private final Format format;
+    private final int blockSize;
+    private final int level;
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    // 块索引：每块压缩后/压缩前的长度
+    private int[] compressedLengths = new int[16];
+    private int[] uncompressedLengths = new int[16];
+    private int blockCount;
+    private int blocksWritten; // 块按提交顺序写出，第 i 次写出的即第 i 块
+
+    private byte[] block;
+    private int blockLength;
+    private long position; // 已写出到底层流的字节数
+    private long uncompressedTotal;
+    private boolean closed;
+
+    /**
+     * @param out 底层输出流，关闭本流时一并关闭
+     * @param blockSize 块大小（压缩前）
+     * @param level 压缩等级（{@link Deflater#BEST_SPEED} ~ {@link Deflater#BEST_COMPRESSION}，或 {@link Deflater#DEFAULT_COMPRESSION}）
+     * @param pool 压缩线程池，为 null 时在调用线程内压缩
+     * @param maxPending 最多同时在途（已提交未写出）的块数
+     */
+    public BlockCompressedOutputStream(OutputStream out, int blockSize, int level, ExecutorService pool,
+                                       int maxPending) throws IOException {
+        this(out, blockSize, level, pool, maxPending, INDEXED);
+    }
+
+    BlockCompressedOutputStream(OutputStream out, int blockSize, int level, ExecutorService pool, int maxPending,
+                                Format format) throws IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("输出流不能为空");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须大于 0");
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("压缩等级必须在 1 ~ 9 之间: " + level);
+        }
+        this.out = out;
+        this.format = format;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.pool = pool;
+        this.maxPending = Math.max(1, maxPending);
+        this.block = new byte[blockSize];
+
+        byte[] header = format.header(blockSize);
+        out.write(header);
+        position = header.length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * 写入缓冲区中剩余的全部字节
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            int n = Math.min(src.remaining(), blockSize - blockLength);
+            src.get(block, blockLength, n);
+            blockLength += n;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 写出剩余数据、块索引与尾部，并关闭底层流
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                drainOne();
+            }
+            out.write(format.trailer(compressedLengths, uncompressedLengths, blockCount, position, uncompressedTotal));
+        } finally {
+            for (Future<byte[]> f : pending) {
+                f.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        block = new byte[blockSize];
+        blockLength = 0;
+        uncompressedTotal += length;
+        recordUncompressed(length);
+
+        if (pool == null) {
+            writeCompressed(format.compress(data, length, level));
+            return;
+        }
+        pending.addLast(pool.submit(() -> format.compress(data, length, level)));
+        while (pending.size() > maxPending) {
+            drainOne();
+        }
+    }
+
+    private void drainOne() throws IOException {
+        try {
+            writeCompressed(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("压缩被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("块压缩失败", e.getCause());
+        }
+    }
+
+    private void recordUncompressed(int length) {
+        if (blockCount == uncompressedLengths.length) {
+            compressedLengths = Arrays.copyOf(compressedLengths, blockCount * 2);
+            uncompressedLengths = Arrays.copyOf(uncompressedLengths, blockCount * 2);
+        }
+        uncompressedLengths[blockCount++] = length;
+    }
+
+    private void writeCompressed(byte[] compressed) throws IOException {
+        out.write(compressed);
+        compressedLengths[blocksWritten++] = compressed.length;
+        position += compressed.length;
+    }
+
+    /*
+     * 压缩一块：输出 zlib 格式（带 Adler-32 校验）；压缩后不比原始数据小时原样存储，
+     * 读取时以“压缩长度 == 原始长度”识别
+     */
+    static byte[] compress(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buf = new byte[length];
+            int n = 0;
+            while (!deflater.finished() && n < buf.length) {
+                n += deflater.deflate(buf, n, buf.length - n);
+            }
+            if (!deflater.finished() || n >= length) {
+                return Arrays.copyOf(data, length);
+            }
+            return Arrays.copyOf(buf, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 把缓冲区中的一段字节按 ISO-8859-1 视作字符序列，供正则表达式直接匹配原始字节：
+ * 不解码、不拷贝，同一个实例可对不同区间反复 {@link #set} 复用。ASCII 范围内与按字符匹配一致
+ */
+final class ByteSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int from;
+    private int length;
+
+    void set(ByteBuffer buffer, int from, int to) {
+        this.buffer = buffer;
+        this.from = from;
+        this.length = to - from;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(from + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        ByteSequence sub = new ByteSequence();
+        sub.set(buffer, from + start, from + end);
+        return sub;
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,222 @@
+package com.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * 内容定义分块（FastCDC）：用滚动 Gear 哈希决定分片边界，
+ * 在文件开头插入/删除少量字节只会影响附近一两个分片，其后的分片内容与边界保持不变。
+ */
+public class CdcSplitUtil {
+
+    /** 默认平均分片大小 */
+    public static final long DEFAULT_AVG_SIZE = 4L * 1024 * 1024;
+
+    /** 读取源文件的缓冲区大小 */
+    private static final int READ_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    /** 归一化分块等级：平均大小之前用更严格的掩码，之后用更宽松的掩码，使分片大小向平均值集中 */
+    private static final int NORMALIZATION_LEVEL = 2;
+
+    // Gear 表必须固定不变，否则同一份内容在不同运行间会得到不同边界
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < GEAR.length; i++) {
+            // SplitMix64
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * 按平均分片大小做内容定义分块，最小/最大分片分别取平均值的 1/4 与 4 倍
+     * @param progressCallback 进度回调（0.0 ~ 1.0）
+     * @return 分割生成的文件数量
+     */
+    public static int splitFile(File sourceFile, File outputDir, long avgSize, Consumer<Double> progressCallback)
+            throws IOException {
+        return splitFile(sourceFile, outputDir, avgSize / 4, avgSize, avgSize * 4,
+                new SplitOptions().progress(ProgressListener.ofFraction(progressCallback)));
+    }
+
+    /**
+     * 内容定义分块
+     * @param minSize 最小分片大小（该范围内不做边界判断）
+     * @param avgSize 期望的平均分片大小
+     * @param maxSize 最大分片大小（达到后强制切分）
+     * @param options 进度监听器、校验清单等（进度单位为字节）
+     * @return 分割生成的文件数量
+     */
+    public static int splitFile(File sourceFile, File outputDir, long minSize, long avgSize, long maxSize,
+                                SplitOptions options) throws IOException {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (minSize <= 0 || avgSize <= minSize || maxSize <= avgSize) {
+            throw new IllegalArgumentException(
+                    String.format("分片大小参数无效，需满足 0 < 最小值（%d）< 平均值（%d）< 最大值（%d）", minSize, avgSize, maxSize));
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        outputDir = FileSplitUtil.resolveOutputDir(sourceFile, outputDir);
+
+        String fileName = sourceFile.getName();
+        String baseName = FileSplitUtil.getBaseName(fileName);
+        String extension = FileSplitUtil.partExtension(fileName, options);
+
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+
+        int bits = 63 - Long.numberOfLeadingZeros(avgSize); // floor(log2(avg))
+        long maskS = topBitsMask(bits + NORMALIZATION_LEVEL);
+        long maskL = topBitsMask(Math.max(1, bits - NORMALIZATION_LEVEL));
+
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        byte[] buf = new byte[READ_BUFFER_SIZE];
+        ByteBuffer wrapper = ByteBuffer.wrap(buf);
+        int partCounter = 1;
+        long chunkLen = 0; // 当前分片已累计的字节数
+        long hash = 0;
+        ChunkDigester digester = options.isManifestEnabled()
+                ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+        List<DigestManifest.Entry> entries = new ArrayList<>();
+        long partOffset = 0;
+
+        ExecutorService pool = FileSplitUtil.newCompressPool(options);
+        WritableByteChannel out = null;
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            out = FileSplitUtil.openPartOutput(
+                    new File(outputDir, FileSplitUtil.partName(baseName, partCounter, extension)), options, pool);
+            tracker.setCurrentPart(partCounter);
+
+            int n;
+            while ((n = readFully(in, wrapper)) > 0) {
+                int i = 0;
+                int segStart = 0;
+                while (i < n) {
+                    // 1. 最小分片范围内直接跳过，不计算哈希
+                    if (chunkLen < minSize) {
+                        int skip = (int) Math.min(minSize - chunkLen, n - i);
+                        i += skip;
+                        chunkLen += skip;
+                        continue;
+                    }
+
+                    // 2. [min, avg) 用严格掩码，[avg, max) 用宽松掩码
+                    boolean cut = false;
+                    if (chunkLen < avgSize) {
+                        int end = (int) Math.min(n, i + (avgSize - chunkLen));
+                        int start = i;
+                        while (i < end) {
+                            hash = (hash << 1) + GEAR[buf[i++] & 0xFF];
+                            if ((hash & maskS) == 0) {
+                                cut = true;
+                                break;
+                            }
+                        }
+                        chunkLen += i - start;
+                    } else {
+                        int end = (int) Math.min(n, i + (maxSize - chunkLen));
+                        int start = i;
+                        while (i < end) {
+                            hash = (hash << 1) + GEAR[buf[i++] & 0xFF];
+                            if ((hash & maskL) == 0) {
+                                cut = true;
+                                break;
+                            }
+                        }
+                        chunkLen += i - start;
+                        if (chunkLen >= maxSize) {
+                            cut = true;
+                        }
+                    }
+
+                    // 3. 命中边界：写出当前分片剩余部分，切换到下一个分片
+                    if (cut && (i < n || in.position() < totalSize)) {
+                        writeFully(out, buf, segStart, i - segStart);
+                        tracker.add(i - segStart);
+                        out.close();
+                        if (digester != null) {
+                            digester.update(buf, segStart, i - segStart);
+                            DigestManifest.Entry entry = digester.finishPart(
+                                    FileSplitUtil.partName(baseName, partCounter, extension), partOffset);
+                            entries.add(entry);
+                            partOffset += entry.getLength();
+                        }
+                        partCounter++;
+                        out = FileSplitUtil.openPartOutput(
+                                new File(outputDir, FileSplitUtil.partName(baseName, partCounter, extension)),
+                                options, pool);
+                        tracker.setCurrentPart(partCounter);
+                        segStart = i;
+                        chunkLen = 0;
+                        hash = 0;
+                    }
+                }
+                writeFully(out, buf, segStart, n - segStart);
+                tracker.add(n - segStart);
+                if (digester != null) {
+                    digester.update(buf, segStart, n - segStart);
+                }
+            }
+        } finally {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+        if (digester != null) {
+            entries.add(digester.finishPart(FileSplitUtil.partName(baseName, partCounter, extension), partOffset));
+            DigestManifest.of(fileName, entries, digester.finishFileSha256())
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+
+        return partCounter;
+    }
+
+    // 高 k 位为 1 的掩码：Gear 哈希左移累积，高位综合了最近 64 个字节的内容
+    private static long topBitsMask(int k) {
+        k = Math.min(63, k);
+        return ((1L << k) - 1) << (64 - k);
+    }
+
+    // 尽量填满缓冲区，返回读取的字节数，EOF 时返回 0
+    private static int readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    private static void writeFully(WritableByteChannel out, byte[] buf, int offset, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf, offset, length);
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+}
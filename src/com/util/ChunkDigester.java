@@ -0,0 +1,122 @@
+package com.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Checksum;
+
+/**
+ * 在拷贝过程中顺带计算分片摘要：每片 CRC32C，可选每片 SHA-256 与整文件 SHA-256。
+ * 调用方把写入分片的字节原样交给 {@link #update}，一片结束时调用 {@link #finishPart}，
+ * 数据只经过一次内存，不需要事后重读。非线程安全，并行时每个工作线程各用一个实例。
+ */
+public class ChunkDigester {
+
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
+    private final Checksum partCrc = Crc32c.create();
+    private final MessageDigest partSha;
+    private final MessageDigest fileSha;
+    private long partLength;
+    private byte[] scratch;
+
+    /**
+     * @param sha256 是否计算每片 SHA-256
+     * @param fileSha256 是否同时计算整文件 SHA-256（仅在按顺序喂入全部字节时有意义）
+     */
+    public ChunkDigester(boolean sha256, boolean fileSha256) {
+        this.partSha = sha256 ? newSha256() : null;
+        this.fileSha = fileSha256 ? newSha256() : null;
+    }
+
+    public void update(byte[] b, int off, int len) {
+        partCrc.update(b, off, len);
+        if (partSha != null) {
+            partSha.update(b, off, len);
+        }
+        if (fileSha != null) {
+            fileSha.update(b, off, len);
+        }
+        partLength += len;
+    }
+
+    /**
+     * 喂入缓冲区中 [position, limit) 的字节，不改变缓冲区的 position
+     */
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        // 直接缓冲区：经可复用的中转数组批量读取，结束后还原 position，不产生临时对象
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            int n = Math.min(scratch.length, buffer.remaining());
+            buffer.get(scratch, 0, n);
+            update(scratch, 0, n);
+        }
+        buffer.position(start);
+    }
+
+    /**
+     * 结束当前分片，返回其记录并重置分片级状态
+     * @param offset 该分片在完整文件中的偏移
+     */
+    public DigestManifest.Entry finishPart(String name, long offset) {
+        DigestManifest.Entry entry = new DigestManifest.Entry(name, offset, partLength, partCrc.getValue(),
+                partSha != null ? toHex(partSha.digest()) : null);
+        partCrc.reset();
+        partLength = 0;
+        return entry;
+    }
+
+    /**
+     * 整文件 SHA-256（小写十六进制），未启用时返回 null；调用后整文件状态被重置
+     */
+    public String finishFileSha256() {
+        return fileSha != null ? toHex(fileSha.digest()) : null;
+    }
+
+    /**
+     * 包装输出流：写出的每个字节都计入摘要
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                update(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                update(b, off, len);
+            }
+        };
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JRE 不支持 SHA-256", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = digits[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,409 @@
+package com.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 把按顺序排列的一组分片呈现为一个只读的逻辑文件，无需先合并即可随机读取任意位置：
+ * 逻辑偏移按各分片长度的前缀和二分查找定位到（分片, 分片内偏移），块压缩与 gzip（BGZF 风格）分片按解压后的内容读取。
+ * 同时打开的分片数有上限，按最近使用顺序换出并关闭；小块读取经过按逻辑块缓存的最近使用数据，
+ * 不小于一个缓存块的读取直接读分片，顺序读大文件不会冲掉缓存。非线程安全。
+ */
+public class ChunkedFileChannel implements SeekableByteChannel {
+
+    /** 默认同时打开的分片数上限 */
+    public static final int DEFAULT_MAX_OPEN = 64;
+
+    /** 默认缓存块大小 */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /** 默认缓存块数（默认块大小下共 16 MB） */
+    public static final int DEFAULT_MAX_BLOCKS = 256;
+
+    private final List<File> parts;
+    private final long[] starts;
+    private final FileMergeUtil.PartFormat[] formats;
+    private final int maxOpen;
+    private final int blockSize;
+    private final int maxBlocks;
+    private final LinkedHashMap<Integer, Source> open = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Long, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long position;
+    private boolean closed;
+
+    private ChunkedFileChannel(List<File> parts, long[] starts, FileMergeUtil.PartFormat[] formats,
+                               int maxOpen, int blockSize, int maxBlocks) {
+        this.parts = parts;
+        this.starts = starts;
+        this.formats = formats;
+        this.maxOpen = maxOpen;
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+    }
+
+    /**
+     * 按给定顺序把分片拼接为一个逻辑文件，使用默认的打开数与缓存上限
+     */
+    public static ChunkedFileChannel open(List<File> parts) throws IOException {
+        return open(parts, DEFAULT_MAX_OPEN, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS);
+    }
+
+    /**
+     * 按给定顺序把分片拼接为一个逻辑文件
+     * @param maxOpen 同时打开的分片数上限
+     * @param blockSize 缓存块大小，小于该长度的读取经过缓存
+     * @param maxBlocks 缓存块数上限，为 0 时不缓存
+     */
+    public static ChunkedFileChannel open(List<File> parts, int maxOpen, int blockSize, int maxBlocks)
+            throws IOException {
+        if (parts == null || parts.isEmpty()) {
+            throw new IllegalArgumentException("文件列表为空");
+        }
+        if (maxOpen <= 0) {
+            throw new IllegalArgumentException("同时打开的分片数必须大于 0");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须大于 0");
+        }
+        if (maxBlocks < 0) {
+            throw new IllegalArgumentException("缓存块数不能为负数");
+        }
+        List<File> files = new ArrayList<>(parts);
+        long[] starts = new long[files.size() + 1];
+        FileMergeUtil.PartFormat[] formats = new FileMergeUtil.PartFormat[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            if (f == null || !f.isFile()) {
+                throw new IllegalArgumentException("无效文件: " + (f == null ? null : f.getAbsolutePath()));
+            }
+            formats[i] = FileMergeUtil.PartFormat.of(f);
+            long length;
+            if (formats[i] == FileMergeUtil.PartFormat.GZIP) {
+                // 随机读取需要成员索引，非 BGZF 风格的 gzip 在这里就失败，不必先完整解压一遍统计长度
+                try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                    length = GzipUtil.RandomAccess.open(channel).length();
+                } catch (IOException e) {
+                    throw new IOException(f.getName() + ": " + e.getMessage(), e);
+                }
+            } else {
+                length = formats[i].length(f);
+            }
+            starts[i + 1] = starts[i] + length;
+        }
+        return new ChunkedFileChannel(files, starts, formats, maxOpen, blockSize, maxBlocks);
+    }
+
+    /**
+     * 自动识别文件夹中唯一一组连续编号的分片（与 {@link FileMergeUtil#mergeFiles} 相同的规则），按编号拼接
+     */
+    public static ChunkedFileChannel open(File folder) throws IOException {
+        return open(FileMergeUtil.findChunkGroup(folder));
+    }
+
+    /**
+     * 按校验清单中的分片顺序拼接 chunkDir 中的分片，并核对每个分片的长度与清单记录一致
+     */
+    public static ChunkedFileChannel open(File chunkDir, DigestManifest manifest) throws IOException {
+        if (manifest == null || manifest.getParts().isEmpty()) {
+            throw new IllegalArgumentException("校验清单为空");
+        }
+        List<File> files = new ArrayList<>();
+        for (DigestManifest.Entry entry : manifest.getParts()) {
+            File f = new File(chunkDir, entry.getName());
+            if (!f.isFile()) {
+                throw new IOException("清单中的分片不存在: " + entry.getName());
+            }
+            files.add(f);
+        }
+        ChunkedFileChannel channel = open(files);
+        for (int i = 0; i < files.size(); i++) {
+            DigestManifest.Entry entry = manifest.getParts().get(i);
+            if (channel.starts[i] != entry.getOffset() || channel.partLength(i) != entry.getLength()) {
+                channel.close();
+                throw new IOException(String.format("分片长度与校验清单不符: %s（清单 %d 字节，实际 %d 字节）",
+                        entry.getName(), entry.getLength(), channel.partLength(i)));
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * 从当前位置读取，并把位置后移实际读取的字节数
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int n = read(dst, position);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    /**
+     * 从逻辑位置 position 处读取（不改变当前位置），尽量填满 dst
+     * @return 实际读取的字节数，position 超出末尾时返回 -1
+     */
+    public int read(ByteBuffer dst, long position) throws IOException {
+        ensureOpen();
+        if (position < 0) {
+            throw new IllegalArgumentException("读取位置不能为负数");
+        }
+        if (position >= size()) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size()) {
+            int n;
+            if (maxBlocks == 0 || dst.remaining() >= blockSize) {
+                n = (int) Math.min(dst.remaining(), size() - position);
+                readDirect(position, dst, n);
+            } else {
+                long block = position / blockSize;
+                byte[] data = block(block);
+                int inBlock = (int) (position - block * blockSize);
+                n = Math.min(dst.remaining(), data.length - inBlock);
+                dst.put(data, inBlock, n);
+            }
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 以当前通道为数据源的输入流（从当前位置开始读取）；关闭输入流时同时关闭本通道
+     */
+    public InputStream newInputStream() {
+        return Channels.newInputStream(this);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public ChunkedFileChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("读取位置不能为负数");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    /** 逻辑文件的总长度（块压缩分片按解压后的长度计） */
+    @Override
+    public long size() {
+        return starts[starts.length - 1];
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        blocks.clear();
+        IOException failure = null;
+        for (Source source : open.values()) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        open.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** 分片数 */
+    public int getPartCount() {
+        return parts.size();
+    }
+
+    /** 第 index 个分片在逻辑文件中的起始偏移 */
+    public long partOffset(int index) {
+        return starts[index];
+    }
+
+    /** 第 index 个分片的长度（块压缩分片按解压后的长度计） */
+    public long partLength(int index) {
+        return starts[index + 1] - starts[index];
+    }
+
+    /**
+     * 逻辑位置所在的分片序号：starts[i] &lt;= position &lt; starts[i + 1] 的 i，空分片自然被跳过
+     */
+    public int partIndexOf(long position) {
+        if (position < 0 || position >= size()) {
+            throw new IllegalArgumentException("位置超出范围: " + position);
+        }
+        int low = 0;
+        int high = parts.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // 取得逻辑块的数据（末块可能不足 blockSize），未缓存时读入并换出最久未用的块
+    private byte[] block(long block) throws IOException {
+        byte[] data = blocks.get(block);
+        if (data != null) {
+            return data;
+        }
+        long from = block * blockSize;
+        data = new byte[(int) Math.min(blockSize, size() - from)];
+        readDirect(from, ByteBuffer.wrap(data), data.length);
+        blocks.put(block, data);
+        if (blocks.size() > maxBlocks) {
+            Iterator<byte[]> eldest = blocks.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return data;
+    }
+
+    // 从逻辑位置 position 处向 dst 读取恰好 length 个字节，可跨越多个分片
+    private void readDirect(long position, ByteBuffer dst, int length) throws IOException {
+        while (length > 0) {
+            int index = partIndexOf(position);
+            int n = (int) Math.min(length, starts[index + 1] - position);
+            source(index).read(dst, position - starts[index], n);
+            position += n;
+            length -= n;
+        }
+    }
+
+    // 取得已打开的分片，未打开时打开并换出最久未用的分片
+    private Source source(int index) throws IOException {
+        Source source = open.get(index);
+        if (source != null) {
+            return source;
+        }
+        source = new Source(parts.get(index), formats[index]);
+        open.put(index, source);
+        if (open.size() > maxOpen) {
+            Iterator<Source> eldest = open.values().iterator();
+            Source evicted = eldest.next();
+            eldest.remove();
+            evicted.close();
+        }
+        return source;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /** 一个已打开的分片：普通分片按位置读通道，块压缩与 gzip 分片只解压涉及到的块或成员 */
+    private static final class Source implements Closeable {
+        /** 压缩分片读入非堆缓冲区时的中转数组大小 */
+        private static final int SCRATCH_SIZE = 64 * 1024;
+
+        private final File file;
+        private final FileChannel channel;
+        private final BlockCompressedFile block;
+        private final GzipUtil.RandomAccess gzip;
+        private byte[] scratch;
+
+        Source(File file, FileMergeUtil.PartFormat format) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                this.block = format == FileMergeUtil.PartFormat.BLOCK ? BlockCompressedFile.open(channel) : null;
+                this.gzip = format == FileMergeUtil.PartFormat.GZIP ? GzipUtil.RandomAccess.open(channel) : null;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // 从分片内偏移 position 处向 dst 读取恰好 length 个字节
+        void read(ByteBuffer dst, long position, int length) throws IOException {
+            if (block == null && gzip == null) {
+                ByteBuffer view = dst.duplicate();
+                view.limit(view.position() + length);
+                while (view.hasRemaining()) {
+                    if (channel.read(view, position + view.position() - dst.position()) < 0) {
+                        throw new IOException("分片长度已变化: " + file.getName());
+                    }
+                }
+                dst.position(view.position());
+                return;
+            }
+            if (dst.hasArray()) {
+                readCompressed(position, dst.array(), dst.arrayOffset() + dst.position(), length);
+                dst.position(dst.position() + length);
+                return;
+            }
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            for (int done = 0; done < length; ) {
+                int n = Math.min(scratch.length, length - done);
+                readCompressed(position + done, scratch, 0, n);
+                dst.put(scratch, 0, n);
+                done += n;
+            }
+        }
+
+        private void readCompressed(long position, byte[] b, int off, int length) throws IOException {
+            int done = 0;
+            while (done < length) {
+                int n = block != null ? block.read(position + done, b, off + done, length - done)
+                        : gzip.read(position + done, b, off + done, length - done);
+                if (n < 0) {
+                    throw new IOException("分片长度已变化: " + file.getName());
+                }
+                done += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * 字节区间拷贝引擎：决定一段数据如何从源通道搬运到目标通道。
+ * 所有引擎都使用绝对位置读取源文件，不依赖也不修改源通道的 position。
+ */
+public enum CopyEngine {
+
+    /**
+     * 经堆内缓冲区逐块读写（与早期 BufferedInputStream 实现等价，兼容性最好）
+     */
+    STREAM {
+        @Override
+        public void copy(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                         LongConsumer progress) throws IOException {
+            copyWithBuffer(src, srcPos, dst, dstPos, count, ByteBuffer.allocate(STREAM_BUFFER_SIZE), progress);
+        }
+    },
+
+    /**
+     * 基于 FileChannel.transferTo 的零拷贝，Linux 上由内核走 sendfile / copy_file_range
+     */
+    CHANNEL {
+        @Override
+        public void copy(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                         LongConsumer progress) throws IOException {
+            dst.position(dstPos);
+            long copied = 0;
+            while (copied < count) {
+                long span = Math.min(TRANSFER_SPAN, count - copied);
+                long n = src.transferTo(srcPos + copied, span, dst);
+                if (n <= 0) {
+                    // 部分文件系统/平台不支持（或暂时无法）内核直拷，剩余部分退回缓冲区拷贝
+                    STREAM.copy(src, srcPos + copied, dst, dstPos + copied, count - copied, progress);
+                    return;
+                }
+                copied += n;
+                if (progress != null) {
+                    progress.accept(n);
+                }
+            }
+        }
+    },
+
+    /**
+     * 按固定窗口同时映射源区间和目标区间（MappedByteBuffer），在两段映射之间直接拷贝；
+     * 每个窗口用完立即解除映射，因此可处理超过地址空间预算的大文件。
+     * 目标通道必须以读写方式打开。
+     */
+    MMAP {
+        @Override
+        public void copy(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                         LongConsumer progress) throws IOException {
+            long copied = 0;
+            while (copied < count) {
+                long window = Math.min(MMAP_WINDOW, count - copied);
+                MappedByteBuffer in = null;
+                MappedByteBuffer out = null;
+                try {
+                    in = src.map(FileChannel.MapMode.READ_ONLY, srcPos + copied, window);
+                    out = dst.map(FileChannel.MapMode.READ_WRITE, dstPos + copied, window);
+                    // 窗口内再按小段拷贝，保证进度回调的粒度
+                    int done = 0;
+                    while (done < window) {
+                        int step = (int) Math.min(MMAP_PROGRESS_STEP, window - done);
+                        in.limit(done + step);
+                        out.put(in);
+                        done += step;
+                        if (progress != null) {
+                            progress.accept(step);
+                        }
+                    }
+                } finally {
+                    MappedBufferUtil.unmap(out);
+                    MappedBufferUtil.unmap(in);
+                }
+                copied += window;
+            }
+        }
+    };
+
+    /** STREAM 引擎的缓冲区大小（沿用原实现的 8 KB） */
+    static final int STREAM_BUFFER_SIZE = 8192;
+
+    /** CHANNEL 引擎单次 transferTo 的最大跨度，同时也是进度回调的粒度 */
+    static final long TRANSFER_SPAN = 64L * 1024 * 1024;
+
+    /** MMAP 引擎的映射窗口大小 */
+    static final long MMAP_WINDOW = 256L * 1024 * 1024;
+
+    /** MMAP 引擎窗口内的进度回调粒度 */
+    static final int MMAP_PROGRESS_STEP = 8 * 1024 * 1024;
+
+    /**
+     * 按名称解析引擎（忽略大小写），供命令行等文本输入使用
+     */
+    public static CopyEngine fromName(String name) {
+        for (CopyEngine engine : values()) {
+            if (engine.name().equalsIgnoreCase(name.trim())) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("未知的拷贝引擎: " + name + "（可选 stream / channel / mmap）");
+    }
+
+    /**
+     * 将 src 中 [srcPos, srcPos + count) 的字节写入 dst 的 dstPos 处
+     * @param progress 每拷贝一段后回调本段字节数（可为 null）
+     */
+    public abstract void copy(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                              LongConsumer progress) throws IOException;
+
+    // 通用缓冲区拷贝：按绝对位置读写，不改变两个通道的 position
+    static void copyWithBuffer(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                               ByteBuffer buffer, LongConsumer progress) throws IOException {
+        copyWithBuffer(src, srcPos, dst, dstPos, count, buffer, null, progress);
+    }
+
+    // 同上，并把经过缓冲区的字节交给 digester 计算摘要（digester 可为 null）
+    static void copyWithBuffer(FileChannel src, long srcPos, FileChannel dst, long dstPos, long count,
+                               ByteBuffer buffer, ChunkDigester digester, LongConsumer progress) throws IOException {
+        long copied = 0;
+        while (copied < count) {
+            buffer.clear();
+            if (count - copied < buffer.capacity()) {
+                buffer.limit((int) (count - copied));
+            }
+            int n = src.read(buffer, srcPos + copied);
+            if (n < 0) {
+                throw new IOException(String.format("源文件提前结束：期望 %d 字节，实际仅读取 %d 字节", count, copied));
+            }
+            buffer.flip();
+            if (digester != null) {
+                digester.update(buffer);
+            }
+            while (buffer.hasRemaining()) {
+                dst.write(buffer, dstPos + copied + (n - buffer.remaining()));
+            }
+            copied += n;
+            if (progress != null) {
+                progress.accept(n);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C（Castagnoli）校验和。JDK 9+ 自带带硬件加速的 java.util.zip.CRC32C，
+ * 但本工具需兼容 JDK 8，因此 {@link #create()} 优先使用 JDK 实现，不可用时退回本类的 slicing-by-8 实现。
+ */
+public final class Crc32c implements Checksum {
+
+    private static final int POLY = 0x82F63B78; // 反射多项式
+
+    private static final int[][] TABLE = new int[8][256];
+
+    private static final Class<?> JDK_CRC32C;
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+            }
+            TABLE[0][n] = c;
+        }
+        for (int n = 0; n < 256; n++) {
+            int c = TABLE[0][n];
+            for (int t = 1; t < 8; t++) {
+                c = TABLE[0][c & 0xFF] ^ (c >>> 8);
+                TABLE[t][n] = c;
+            }
+        }
+
+        Class<?> jdk;
+        try {
+            jdk = Class.forName("java.util.zip.CRC32C");
+        } catch (ClassNotFoundException e) {
+            jdk = null;
+        }
+        JDK_CRC32C = jdk;
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * 创建 CRC32C 计算器：JDK 9+ 使用内置实现（硬件加速），JDK 8 使用本类
+     */
+    public static Checksum create() {
+        if (JDK_CRC32C != null) {
+            try {
+                return (Checksum) JDK_CRC32C.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException ignored) {
+                // 退回纯 Java 实现
+            }
+        }
+        return new Crc32c();
+    }
+
+    @Override
+    public void update(int b) {
+        crc = TABLE[0][(crc ^ b) & 0xFF] ^ (crc >>> 8);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int c = crc;
+        int end = off + len;
+        while (end - off >= 8) {
+            int lo = c ^ ((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24);
+            c = TABLE[7][lo & 0xFF] ^ TABLE[6][(lo >>> 8) & 0xFF]
+                    ^ TABLE[5][(lo >>> 16) & 0xFF] ^ TABLE[4][lo >>> 24]
+                    ^ TABLE[3][b[off + 4] & 0xFF] ^ TABLE[2][b[off + 5] & 0xFF]
+                    ^ TABLE[1][b[off + 6] & 0xFF] ^ TABLE[0][b[off + 7] & 0xFF];
+            off += 8;
+        }
+        while (off < end) {
+            c = TABLE[0][(c ^ b[off++]) & 0xFF] ^ (c >>> 8);
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    /**
+     * 合并两段相邻数据的 CRC32C：已知 crc(A)、crc(B) 与 B 的长度，求 crc(A + B)。
+     * 并行计算各分片校验和后可据此得到整文件校验和，无需再顺序读一遍（算法同 zlib crc32_combine）。
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // odd = 单个 0 比特对应的运算矩阵
+        odd[0] = POLY & 0xFFFFFFFFL;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // 2 个 0 比特
+        gf2MatrixSquare(odd, even); // 4 个 0 比特
+
+        // 对 crc1 追加 len2 个 0 字节
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+
+        return (crc1 ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 校验清单：记录每个分片的文件名、在原文件中的偏移、长度与摘要，以及整文件摘要。
+ * 文本格式（UTF-8，# 开头为注释，字段以 Tab 分隔）：
+ * <pre>
+ * file  data.bin     0        209715200  9a3c01ef  &lt;sha256 或 -&gt;
+ * part  data_01.bin  0        104857600  1f2e3d4c  &lt;sha256 或 -&gt;
+ * part  data_02.bin  104857600 ...
+ * </pre>
+ */
+public class DigestManifest {
+
+    /** 分割时写在输出目录中的默认清单文件名 */
+    public static final String DEFAULT_FILE_NAME = "!digest_manifest.txt";
+
+    private static final String TYPE_FILE = "file";
+    private static final String TYPE_PART = "part";
+    private static final String NO_DIGEST = "-";
+
+    /**
+     * 清单中的一条记录
+     */
+    public static final class Entry {
+        private final String name;
+        private final long offset;
+        private final long length;
+        private final long crc32c;
+        private final String sha256;
+
+        public Entry(String name, long offset, long length, long crc32c, String sha256) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.crc32c = crc32c;
+            this.sha256 = sha256;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getCrc32c() {
+            return crc32c;
+        }
+
+        /** 小写十六进制 SHA-256，未计算时为 null */
+        public String getSha256() {
+            return sha256;
+        }
+    }
+
+    private final Entry file;
+    private final List<Entry> parts;
+
+    public DigestManifest(Entry file, List<Entry> parts) {
+        this.file = file;
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+    }
+
+    /**
+     * 由按顺序排列的分片记录组装清单：整文件 CRC32C 由各分片 CRC 合并得到，无需再读数据
+     * @param fileSha256 整文件 SHA-256，未计算时传 null
+     */
+    public static DigestManifest of(String fileName, List<Entry> parts, String fileSha256) {
+        long crc = 0;
+        long length = 0;
+        for (Entry part : parts) {
+            crc = length == 0 ? part.crc32c : Crc32c.combine(crc, part.crc32c, part.length);
+            length += part.length;
+        }
+        return new DigestManifest(new Entry(fileName, 0, length, crc, fileSha256), parts);
+    }
+
+    /** 整文件记录（分片拼接后的完整内容） */
+    public Entry getFile() {
+        return file;
+    }
+
+    /** 按合并顺序排列的分片记录 */
+    public List<Entry> getParts() {
+        return parts;
+    }
+
+    public void write(File manifestFile) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(manifestFile), StandardCharsets.UTF_8))) {
+            writer.write("# 校验清单：类型\t文件名\t偏移\t长度\tCRC32C\tSHA-256");
+            writer.newLine();
+            writeEntry(writer, TYPE_FILE, file);
+            for (Entry part : parts) {
+                writeEntry(writer, TYPE_PART, part);
+            }
+        }
+    }
+
+    public static DigestManifest read(File manifestFile) throws IOException {
+        if (manifestFile == null || !manifestFile.isFile()) {
+            throw new IllegalArgumentException("校验清单无效: " + (manifestFile != null ? manifestFile.getPath() : "null"));
+        }
+        Entry file = null;
+        List<Entry> parts = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 6) {
+                throw new IOException(String.format("校验清单第 %d 行格式错误: %s", lineNumber, line));
+            }
+            Entry entry;
+            try {
+                entry = new Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4], 16), NO_DIGEST.equals(fields[5]) ? null : fields[5]);
+            } catch (NumberFormatException e) {
+                throw new IOException(String.format("校验清单第 %d 行数字格式错误: %s", lineNumber, line));
+            }
+            if (TYPE_FILE.equals(fields[0])) {
+                file = entry;
+            } else if (TYPE_PART.equals(fields[0])) {
+                parts.add(entry);
+            } else {
+                throw new IOException(String.format("校验清单第 %d 行类型未知: %s", lineNumber, fields[0]));
+            }
+        }
+        if (parts.isEmpty()) {
+            throw new IOException("校验清单中没有任何分片记录: " + manifestFile.getPath());
+        }
+        return new DigestManifest(file, parts);
+    }
+
+    private static void writeEntry(BufferedWriter writer, String type, Entry entry) throws IOException {
+        if (entry == null) {
+            return;
+        }
+        writer.write(String.format("%s\t%s\t%d\t%d\t%08x\t%s", type, entry.name, entry.offset, entry.length,
+                entry.crc32c, entry.sha256 != null ? entry.sha256 : NO_DIGEST));
+        writer.newLine();
+    }
+}
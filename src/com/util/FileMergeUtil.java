@@ -1,19 +1,71 @@
 package com.util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Checksum;
 
 public class FileMergeUtil {
 
-    // 匹配: base_01.ext, base_001.ext 也支持（但你当前用 %02d，所以至少两位）
-    private static final Pattern CHUNK_PATTERN = Pattern.compile("^(.+?)_(\\d+)\\.([^.]+)$");
+    // 匹配: base_01.ext, base_001.ext 也支持（但你当前用 %02d，所以至少两位）；gzip 分片为 base_01.ext.gz
+    private static final Pattern CHUNK_PATTERN = Pattern.compile("^(.+?)_(\\d+)\\.([^.]+)(?i:\\.gz)?$");
 
+    // 分割时以 gzip 写出的分片：base_01.ext.gz（base_01.gz 仍视为普通分片，即原文件本身是 .gz）
+    private static final Pattern GZIP_PART_PATTERN = Pattern.compile("^.+_\\d+\\.[^.]+(?i:\\.gz)$");
+
+    /** 并行合并时普通分片按此大小切成多个任务，少量大分片也能分给所有线程 */
+    private static final long PARALLEL_RANGE = 256L * 1024 * 1024;
+
+    /** 并行合并时工作线程内累计的进度满此字节数才汇总一次 */
+    private static final long PROGRESS_BATCH = 4L * 1024 * 1024;
+
+    /** 边合并边校验时的拷贝缓冲区大小 */
+    private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+
+    /** 可续传合并的临时输出文件后缀 */
+    static final String MERGING_SUFFIX = ".merging";
+
+    /**
+     * 自动识别文件夹中唯一一组连续编号的分片并合并到同一文件夹；
+     * 文件夹中有分割时生成的校验清单（{@link DigestManifest#DEFAULT_FILE_NAME}）时边合并边校验
+     */
     public static File mergeFiles(File folder, Consumer<Double> progressCallback) throws IOException {
+        List<File> orderedFiles = findChunkGroup(folder);
+
+        // 5. 检查是否已存在合并后的完整文件
+        String outputFileName = inferOriginalFileName(orderedFiles); // e.g., "report.pdf"
+        File outputFile = new File(folder, outputFileName);
+        if (outputFile.exists()) {
+            // 可选择抛出异常，或允许覆盖（这里选择提示用户）
+            throw new IllegalArgumentException("目标文件已存在，无法合并（请先删除）：\n" + outputFile.getName());
+            // ⚠️ 如果你希望自动覆盖，可跳过此检查，但风险高
+        }
+
+        // 6. 执行合并（有校验清单时同时校验）
+        File manifestFile = new File(folder, DigestManifest.DEFAULT_FILE_NAME);
+        return mergeFilesInOrder(orderedFiles, outputFile, new MergeOptions()
+                .verify(manifestFile.isFile() ? DigestManifest.read(manifestFile) : null)
+                .progress(ProgressListener.ofFraction(progressCallback)));
+    }
+
+    /**
+     * 找出文件夹中唯一一组连续编号的分片（xxx_01.ext, xxx_02.ext ...），按编号排序返回
+     */
+    public static List<File> findChunkGroup(File folder) {
         if (folder == null || !folder.isDirectory()) {
             throw new IllegalArgumentException("必须指定一个有效文件夹");
         }
@@ -75,39 +127,37 @@ public class FileMergeUtil {
         List<ChunkInfo> chunks = groups.get(targetGroup);
         chunks.sort(Comparator.comparingInt(c -> c.number)); // 按编号排序
 
-        // 5. 检查是否已存在合并后的完整文件
-        String outputFileName = targetGroup; // e.g., "report.pdf"
-        File outputFile = new File(folder, outputFileName);
-        if (outputFile.exists()) {
-            // 可选择抛出异常，或允许覆盖（这里选择提示用户）
-            throw new IllegalArgumentException("目标文件已存在，无法合并（请先删除）：\n" + outputFile.getName());
-            // ⚠️ 如果你希望自动覆盖，可跳过此检查，但风险高
+        List<File> orderedFiles = new ArrayList<>();
+        for (ChunkInfo chunk : chunks) {
+            orderedFiles.add(chunk.file);
         }
+        return orderedFiles;
+    }
 
-        // 6. 执行合并
-        long totalSize = chunks.stream().mapToLong(c -> c.file.length()).sum();
-        long written = 0;
-
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-            byte[] buffer = new byte[8192];
-            for (ChunkInfo chunk : chunks) {
-                try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(chunk.file))) {
-                    int bytesRead;
-                    while ((bytesRead = bis.read(buffer)) != -1) {
-                        bos.write(buffer, 0, bytesRead);
-                        written += bytesRead;
-                        if (progressCallback != null) {
-                            progressCallback.accept((double) written / totalSize);
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * 按给定顺序合并分片，使用 CHANNEL 引擎（内核直拷，不经过堆内缓冲区）
+     */
+    public static File mergeFilesInOrder(List<File> files, File outputFile, Consumer<Double> progressCallback)
+            throws IOException {
+        return mergeFilesInOrder(files, outputFile, CopyEngine.CHANNEL, progressCallback);
+    }
 
-        return outputFile;
+    /**
+     * 使用指定拷贝引擎按给定顺序合并分片
+     * @param engine 拷贝引擎（STREAM 经堆内缓冲区，CHANNEL 走内核直拷，MMAP 按窗口内存映射）
+     */
+    public static File mergeFilesInOrder(List<File> files, File outputFile, CopyEngine engine,
+                                         Consumer<Double> progressCallback) throws IOException {
+        return mergeFilesInOrder(files, outputFile,
+                new MergeOptions().engine(engine).progress(ProgressListener.ofFraction(progressCallback)));
     }
 
-    public static File mergeFilesInOrder(List<File> files, File outputFile, Consumer<Double> progressCallback)
+    /**
+     * 按给定顺序合并分片
+     * @param options 拷贝引擎、进度监听器、并行合并、校验清单等（进度单位为字节）
+     * @throws IOException 读写失败，或分片与校验清单不符（此时已删除不完整的输出文件；可续传合并保留临时文件与日志）
+     */
+    public static File mergeFilesInOrder(List<File> files, File outputFile, MergeOptions options)
             throws IOException {
         if (files == null || files.isEmpty()) {
             throw new IllegalArgumentException("文件列表为空");
@@ -115,34 +165,434 @@ public class FileMergeUtil {
         if (outputFile == null) {
             throw new IllegalArgumentException("输出文件不能为空");
         }
+        if (options == null) {
+            options = new MergeOptions();
+        }
 
-        // 计算总大小
+        // 计算总大小（块压缩与 gzip 分片按解压后的长度计）
         long totalSize = 0;
-        for (File f : files) {
+        long[] lengths = new long[files.size()];
+        PartFormat[] formats = new PartFormat[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
             if (!f.exists() || !f.isFile()) {
                 throw new IllegalArgumentException("无效文件: " + f.getAbsolutePath());
             }
-            totalSize += f.length();
+            formats[i] = PartFormat.of(f);
+            lengths[i] = formats[i].length(f);
+            totalSize += lengths[i];
         }
 
+        // 名称与长度不符时在创建输出文件之前失败；续传时即使没有校验清单也要计算摘要写入日志
+        DigestingCopier verifier = options.getVerifyManifest() != null || options.isResumable()
+                ? new DigestingCopier(options.getVerifyManifest(), files, lengths) : null;
+
+        CopyEngine engine = options.getEngine();
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        if (options.isResumable()) {
+            // 最终文件名只在全部完成后出现，失败时保留临时文件与日志以便续传
+            mergeResumable(files, outputFile, lengths, formats, verifier, tracker);
+            tracker.finish();
+            return outputFile;
+        }
+        int threads = FileSplitUtil.resolveWorkers(options.getWorkers());
+        if (verifier == null && options.isParallel() && threads > 1) {
+            mergeParallel(files, outputFile, lengths, formats, engine, threads, tracker);
+            tracker.finish();
+            return outputFile;
+        }
+        try {
+            mergeSequential(files, outputFile, lengths, formats, engine, threads, verifier, tracker);
+        } catch (IOException | RuntimeException e) {
+            if (verifier != null) {
+                outputFile.delete(); // 未通过校验的输出不保留
+            }
+            throw e;
+        }
+        tracker.finish();
+
+        return outputFile;
+    }
+
+    // 逐个分片顺序写出；块压缩分片按块并行解压
+    private static void mergeSequential(List<File> files, File outputFile, long[] lengths, PartFormat[] formats,
+                                        CopyEngine engine, int threads, DigestingCopier verifier,
+                                        ProgressTracker tracker) throws IOException {
+        ExecutorService pool = null;
         long written = 0;
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-            byte[] buffer = new byte[8192];
-            for (File part : files) {
-                try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(part))) {
-                    int bytesRead;
-                    while ((bytesRead = bis.read(buffer)) != -1) {
-                        bos.write(buffer, 0, bytesRead);
-                        written += bytesRead;
-                        if (progressCallback != null) {
-                            progressCallback.accept((double) written / totalSize);
+        try (FileChannel out = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < files.size(); i++) {
+                tracker.setCurrentPart(i + 1);
+                try (FileChannel in = FileChannel.open(files.get(i).toPath(), StandardOpenOption.READ)) {
+                    if (verifier != null) {
+                        verifier.copyPart(i, files.get(i), in, formats[i], lengths[i], out, written, tracker::add);
+                        written += lengths[i];
+                    } else if (formats[i] == PartFormat.GZIP) {
+                        copyGzip(files.get(i), lengths[i], out, written, threads, null, tracker::add);
+                        written += lengths[i];
+                    } else if (formats[i] == PartFormat.BLOCK) {
+                        // 块压缩分片：按块并行解压，直接写到输出文件中的对应位置
+                        if (pool == null && threads > 1) {
+                            pool = Executors.newFixedThreadPool(threads, r -> {
+                                Thread t = new Thread(r, "BlockDecompress");
+                                t.setDaemon(true);
+                                return t;
+                            });
+                        }
+                        try (BlockCompressedFile bc = BlockCompressedFile.open(in)) {
+                            bc.decompressTo(out, written, pool, 2 * threads, tracker::add);
+                            written += bc.length();
                         }
+                    } else {
+                        long length = in.size();
+                        engine.copy(in, 0, out, written, length, tracker::add);
+                        written += length;
                     }
                 }
             }
+            if (verifier != null) {
+                verifier.finish();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /*
+     * 可续传合并：写入 <输出文件>.merging，每完成一个分片先 force 数据，再在日志中追加该分片的记录并 force，
+     * 因此日志中的每条记录都对应已落盘的数据。重新执行时跳过日志中已完成的分片（最后一个分片从临时文件重读复核
+     * CRC32C），截掉临时文件中未记入日志的尾部后继续；全部完成后原子改名为最终文件名并删除日志
+     */
+    private static void mergeResumable(List<File> files, File outputFile, long[] lengths, PartFormat[] formats,
+                                       DigestingCopier copier, ProgressTracker tracker) throws IOException {
+        File temp = new File(outputFile.getPath() + MERGING_SUFFIX);
+        File journalFile = new File(temp.getPath() + MergeJournal.SUFFIX);
+        try (MergeJournal journal = MergeJournal.open(journalFile, files, lengths);
+             FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 续传起点：临时文件中完整存在、且最后一个分片重读复核通过的记录
+            List<DigestManifest.Entry> completed = journal.getCompleted();
+            int resumed = completed.size();
+            while (resumed > 0 && (out.size() < end(completed.get(resumed - 1))
+                    || crc32cOf(out, completed.get(resumed - 1)) != completed.get(resumed - 1).getCrc32c())) {
+                resumed--;
+            }
+            journal.retain(resumed);
+
+            long written = 0;
+            for (int i = 0; i < resumed; i++) {
+                DigestManifest.Entry entry = journal.getCompleted().get(i);
+                copier.resumePart(i, entry);
+                written += entry.getLength();
+            }
+            out.truncate(written); // 丢弃上次中断时写了一半的分片
+            tracker.add(written);
+
+            for (int i = resumed; i < files.size(); i++) {
+                tracker.setCurrentPart(i + 1);
+                DigestManifest.Entry entry;
+                try (FileChannel in = FileChannel.open(files.get(i).toPath(), StandardOpenOption.READ)) {
+                    entry = copier.copyPart(i, files.get(i), in, formats[i], lengths[i], out, written,
+                            tracker::add);
+                }
+                out.force(false);
+                journal.append(entry);
+                written += lengths[i];
+            }
+            copier.finish();
+            out.force(true);
         }
+        Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        journalFile.delete();
+    }
 
-        return outputFile;
+    /*
+     * 把 gzip 分片解压写入 out 的 position 处（threads 大于 1 且为 BGZF 风格时并行解压），digester 不为 null 时顺带计算摘要；
+     * 解压后的长度必须与事先统计的 length 一致
+     */
+    private static void copyGzip(File part, long length, FileChannel out, long position, int threads,
+                                 ChunkDigester digester, LongConsumer progress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(VERIFY_BUFFER_SIZE);
+        long done = 0;
+        try (ReadableByteChannel in = GzipUtil.openInput(part, threads, null)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                if (done + n > length) {
+                    break;
+                }
+                buffer.flip();
+                if (digester != null) {
+                    digester.update(buffer);
+                }
+                while (buffer.hasRemaining()) {
+                    out.write(buffer, position + done + buffer.position());
+                }
+                buffer.clear();
+                done += n;
+                progress.accept(n);
+            }
+        }
+        if (done != length) {
+            throw new IOException("gzip 分片解压后的长度已变化: " + part.getName());
+        }
+    }
+
+    private static long end(DigestManifest.Entry entry) {
+        return entry.getOffset() + entry.getLength();
+    }
+
+    // 重读输出文件中某个分片的数据并计算 CRC32C
+    private static long crc32cOf(FileChannel channel, DigestManifest.Entry entry) throws IOException {
+        Checksum crc = Crc32c.create();
+        ByteBuffer buffer = ByteBuffer.allocate(VERIFY_BUFFER_SIZE);
+        long done = 0;
+        while (done < entry.getLength()) {
+            buffer.clear();
+            if (entry.getLength() - done < buffer.capacity()) {
+                buffer.limit((int) (entry.getLength() - done));
+            }
+            int n = channel.read(buffer, entry.getOffset() + done);
+            if (n < 0) {
+                break;
+            }
+            crc.update(buffer.array(), 0, n);
+            done += n;
+        }
+        return crc.getValue();
+    }
+
+    /*
+     * 并行合并：各分片在输出中的偏移是长度的前缀和，开始前即可确定。先把临时文件 <输出文件>.merging 扩展到总长度，
+     * 再由各工作线程依次领取任务（超过 PARALLEL_RANGE 的普通分片切成多段），各自打开输出通道按位置写入，
+     * 写入顺序无关紧要。全部完成后才改名为输出文件；任一线程失败即删除临时文件，
+     * 不会留下长度完整、中间却是空洞的输出
+     */
+    private static void mergeParallel(List<File> files, File outputFile, long[] lengths, PartFormat[] formats,
+                                      CopyEngine engine, int threads, ProgressTracker tracker) throws IOException {
+        File temp = new File(outputFile.getPath() + MERGING_SUFFIX);
+        try {
+            writeParallel(files, temp, lengths, formats, engine, threads, tracker);
+            Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private static void writeParallel(List<File> files, File outputFile, long[] lengths, PartFormat[] formats,
+                                      CopyEngine engine, int threads, ProgressTracker tracker) throws IOException {
+        // 每个任务为 {分片下标, 分片内起点, 长度, 输出位置}；块压缩与 gzip 分片整个解压，不切分
+        List<long[]> ranges = new ArrayList<>();
+        long offset = 0;
+        for (int i = 0; i < files.size(); i++) {
+            long step = formats[i] != PartFormat.PLAIN ? lengths[i] : PARALLEL_RANGE;
+            for (long from = 0; from < lengths[i]; from += step) {
+                ranges.add(new long[]{i, from, Math.min(step, lengths[i] - from), offset + from});
+            }
+            offset += lengths[i];
+        }
+
+        // 一次性设置最终长度（JDK 没有 fallocate，通常得到稀疏文件），之后各线程只覆盖写，不再改变文件大小
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
+            raf.setLength(0);
+            raf.setLength(offset);
+        }
+        if (ranges.isEmpty()) {
+            return;
+        }
+
+        int threadCount = Math.min(threads, ranges.size());
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "FileMerge-Parallel");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int w = 0; w < threadCount; w++) {
+                futures.add(pool.submit(() -> {
+                    BatchedProgress progress = new BatchedProgress(tracker);
+                    try (FileChannel out = FileChannel.open(outputFile.toPath(),
+                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                        for (int r = next.getAndIncrement(); r < ranges.size(); r = next.getAndIncrement()) {
+                            long[] range = ranges.get(r);
+                            int part = (int) range[0];
+                            tracker.setCurrentPart(part + 1);
+                            try (FileChannel in = FileChannel.open(files.get(part).toPath(), StandardOpenOption.READ)) {
+                                if (formats[part] == PartFormat.GZIP) {
+                                    copyGzip(files.get(part), lengths[part], out, range[3], 1, null, progress);
+                                } else if (formats[part] == PartFormat.BLOCK) {
+                                    try (BlockCompressedFile bc = BlockCompressedFile.open(in)) {
+                                        bc.decompressTo(out, range[3], null, 0, progress);
+                                    }
+                                } else {
+                                    engine.copy(in, range[1], out, range[3], range[2], progress);
+                                }
+                            }
+                        }
+                    } finally {
+                        progress.flush();
+                    }
+                    return null;
+                }));
+            }
+            FileSplitUtil.awaitAll(futures);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 工作线程内的进度累计：满 PROGRESS_BATCH 才汇总到共享计数器，避免多个线程频繁争用
+    private static final class BatchedProgress implements LongConsumer {
+        private final ProgressTracker tracker;
+        private long pending;
+
+        BatchedProgress(ProgressTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public void accept(long n) {
+            pending += n;
+            if (pending >= PROGRESS_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending > 0) {
+                tracker.add(pending);
+                pending = 0;
+            }
+        }
+    }
+
+    /*
+     * 边拷贝边计算摘要的分片写出：字节经堆内缓冲区顺带计算 CRC32C（清单记录了 SHA-256 时也计算），
+     * 提供校验清单时构造前核对分片名称、顺序与长度（截断的分片不必等到拷贝时才发现），每片结束立即比对；
+     * 整文件 CRC32C 由各片合并，SHA-256 在同一遍中计算
+     */
+    private static final class DigestingCopier {
+        private final DigestManifest manifest;
+        private final ChunkDigester digester;
+        private final ByteBuffer buffer = ByteBuffer.allocate(VERIFY_BUFFER_SIZE);
+        private long fileCrc;
+        private long fileLength;
+        private boolean resumed;
+
+        /**
+         * @param manifest 校验清单，为 null 时只计算摘要不比对
+         */
+        DigestingCopier(DigestManifest manifest, List<File> files, long[] lengths) throws IOException {
+            this.manifest = manifest;
+            if (manifest == null) {
+                this.digester = new ChunkDigester(false, false);
+                return;
+            }
+            List<DigestManifest.Entry> parts = manifest.getParts();
+            if (parts.size() != files.size()) {
+                throw new IOException(String.format("分片数量与校验清单不符：清单中 %d 个，实际 %d 个",
+                        parts.size(), files.size()));
+            }
+            boolean partSha = false;
+            for (int i = 0; i < parts.size(); i++) {
+                DigestManifest.Entry entry = parts.get(i);
+                String name = files.get(i).getName();
+                if (!entry.getName().equals(name)) {
+                    throw new IOException(String.format("第 %d 个分片应为 %s，实际为 %s", i + 1, entry.getName(), name));
+                }
+                if (entry.getLength() != lengths[i]) {
+                    throw new IOException(String.format("分片长度与校验清单不符: %s 期望 %d 字节，实际 %d 字节",
+                            name, entry.getLength(), lengths[i]));
+                }
+                partSha |= entry.getSha256() != null;
+            }
+            DigestManifest.Entry file = manifest.getFile();
+            this.digester = new ChunkDigester(partSha, file != null && file.getSha256() != null);
+        }
+
+        /**
+         * 拷贝一个分片到 out 的 position 处（块压缩与 gzip 分片按顺序解压），返回按实际数据计算的记录
+         */
+        DigestManifest.Entry copyPart(int index, File part, FileChannel in, PartFormat format, long length,
+                                      FileChannel out, long position, LongConsumer progress) throws IOException {
+            if (format == PartFormat.GZIP) {
+                copyGzip(part, length, out, position, 1, digester, progress);
+            } else if (format == PartFormat.BLOCK) {
+                try (BlockCompressedFile bc = BlockCompressedFile.open(in)) {
+                    long done = 0;
+                    while (done < length) {
+                        int n = bc.read(done, buffer.array(), 0, (int) Math.min(buffer.capacity(), length - done));
+                        if (n <= 0) {
+                            throw new IOException("块压缩分片提前结束: " + part.getName());
+                        }
+                        buffer.clear().limit(n);
+                        digester.update(buffer);
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer, position + done + buffer.position());
+                        }
+                        done += n;
+                        progress.accept(n);
+                    }
+                }
+            } else {
+                CopyEngine.copyWithBuffer(in, 0, out, position, length, buffer, digester, progress);
+            }
+            DigestManifest.Entry actual = digester.finishPart(part.getName(), position);
+            check(index, actual);
+            return actual;
+        }
+
+        /**
+         * 续传时计入此前已完成的分片（摘要取自合并日志），整文件 SHA-256 无法再计算，只比对 CRC32C
+         */
+        void resumePart(int index, DigestManifest.Entry journaled) throws IOException {
+            check(index, journaled);
+            resumed = true;
+        }
+
+        // 与清单中第 index 个分片比对，并累计整文件 CRC32C
+        private void check(int index, DigestManifest.Entry actual) throws IOException {
+            if (manifest != null) {
+                DigestManifest.Entry expected = manifest.getParts().get(index);
+                if (actual.getLength() != expected.getLength() || actual.getCrc32c() != expected.getCrc32c()) {
+                    throw new IOException(String.format("分片校验失败: %s（CRC32C 期望 %08x，实际 %08x）",
+                            expected.getName(), expected.getCrc32c(), actual.getCrc32c()));
+                }
+                if (expected.getSha256() != null && actual.getSha256() != null
+                        && !expected.getSha256().equalsIgnoreCase(actual.getSha256())) {
+                    throw new IOException(String.format("分片校验失败: %s（SHA-256 期望 %s，实际 %s）",
+                            expected.getName(), expected.getSha256(), actual.getSha256()));
+                }
+            }
+            fileCrc = fileLength == 0 ? actual.getCrc32c()
+                    : Crc32c.combine(fileCrc, actual.getCrc32c(), actual.getLength());
+            fileLength += actual.getLength();
+        }
+
+        // 全部分片写完后比对整文件摘要
+        void finish() throws IOException {
+            String sha256 = digester.finishFileSha256();
+            DigestManifest.Entry file = manifest != null ? manifest.getFile() : null;
+            if (file == null) {
+                return;
+            }
+            if (file.getLength() != fileLength || file.getCrc32c() != fileCrc) {
+                throw new IOException(String.format("整文件校验失败: %s（CRC32C 期望 %08x，实际 %08x）",
+                        file.getName(), file.getCrc32c(), fileCrc));
+            }
+            if (!resumed && file.getSha256() != null && !file.getSha256().equalsIgnoreCase(sha256)) {
+                throw new IOException(String.format("整文件校验失败: %s（SHA-256 期望 %s，实际 %s）",
+                        file.getName(), file.getSha256(), sha256));
+            }
+        }
     }
 
     // 判断一组分片是否有效：从1开始、连续、至少2个
@@ -160,6 +610,38 @@ public class FileMergeUtil {
         return true;
     }
 
+    /** 分片的存储格式，合并与随机读取时据此解压 */
+    enum PartFormat {
+        PLAIN, BLOCK, GZIP;
+
+        /**
+         * 块压缩格式按文件内容识别；gzip 只认分割时写出的 base_01.ext.gz 命名且内容确为 gzip 的分片
+         */
+        static PartFormat of(File part) throws IOException {
+            if (BlockCompressedFile.isBlockCompressed(part)) {
+                return BLOCK;
+            }
+            if (GZIP_PART_PATTERN.matcher(part.getName()).matches() && GzipUtil.isGzip(part)) {
+                return GZIP;
+            }
+            return PLAIN;
+        }
+
+        /** 分片中原始（解压后）数据的长度 */
+        long length(File part) throws IOException {
+            switch (this) {
+                case BLOCK:
+                    try (BlockCompressedFile bc = BlockCompressedFile.open(part)) {
+                        return bc.length();
+                    }
+                case GZIP:
+                    return GzipUtil.uncompressedLength(part);
+                default:
+                    return part.length();
+            }
+        }
+    }
+
     // 辅助类
     private static class ChunkInfo {
         final File file;
@@ -274,15 +756,18 @@ public class FileMergeUtil {
 
     /**
      * 从分片清单推断原始文件名
-     * 例如: ["data_01.bin", "data_02.bin"] → "data.bin"
+     * 例如: ["data_01.bin", "data_02.bin"] → "data.bin"，gzip 分片 ["data_01.bin.gz", ...] → "data.bin"
      */
     public static String inferOriginalFileName(List<File> chunkFiles) {
         if (chunkFiles == null || chunkFiles.isEmpty()) {
             throw new IllegalArgumentException("分片列表为空");
         }
 
-        // 取第一个分片文件名分析
+        // 取第一个分片文件名分析（gzip 分片合并时解压，先去掉 .gz）
         String first = chunkFiles.get(0).getName();
+        if (GZIP_PART_PATTERN.matcher(first).matches()) {
+            first = GzipUtil.stripSuffix(first);
+        }
         int lastUnderscore = first.lastIndexOf('_');
         int lastDot = first.lastIndexOf('.');
 
@@ -314,6 +799,31 @@ public class FileMergeUtil {
             File manifestFile,
             File outputDir,
             Consumer<Double> progressCallback) throws IOException {
+        return mergeWithManifestToDir(chunkDir, manifestFile, outputDir, CopyEngine.CHANNEL, progressCallback);
+    }
+
+    /**
+     * 按清单合并到指定目录，并指定拷贝引擎
+     */
+    public static File mergeWithManifestToDir(
+            File chunkDir,
+            File manifestFile,
+            File outputDir,
+            CopyEngine engine,
+            Consumer<Double> progressCallback) throws IOException {
+        return mergeWithManifestToDir(chunkDir, manifestFile, outputDir,
+                new MergeOptions().engine(engine).progress(ProgressListener.ofFraction(progressCallback)));
+    }
+
+    /**
+     * 按清单合并到指定目录
+     * @param options 拷贝引擎、进度监听器、并行合并等（进度单位为字节）
+     */
+    public static File mergeWithManifestToDir(
+            File chunkDir,
+            File manifestFile,
+            File outputDir,
+            MergeOptions options) throws IOException {
 
         if (outputDir == null) {
             throw new IllegalArgumentException("输出目录不能为空");
@@ -345,6 +855,6 @@ public class FileMergeUtil {
         File outputFile = new File(outputDir, outputFileName);
 
         // 执行合并
-        return mergeFilesInOrder(orderedFiles, outputFile, progressCallback);
+        return mergeFilesInOrder(orderedFiles, outputFile, options);
     }
 }
\ No newline at end of file
@@ -1,84 +1,539 @@
 package com.util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 public class FileSplitUtil {
 
     public static final long DEFAULT_CHUNK_SIZE = 100 * 1024 * 1024;
 
+    /** 并行分割时每个工作线程的直接缓冲区大小 */
+    private static final int PARALLEL_BUFFER_SIZE = 1024 * 1024;
+
 
     /**
      * 分割文件，并通过 progressConsumer 回调进度（0.0 ~ 1.0）
+     * 默认使用 {@link CopyEngine#CHANNEL} 零拷贝引擎
      * @return 分割生成的文件数量
      */
     public static int splitFile(File sourceFile, File outputDir, long chunkSize, Consumer<Double> progressConsumer)
             throws IOException {
-        if (sourceFile == null || !sourceFile.isFile()) {
-            throw new IllegalArgumentException("输入必须是一个有效文件");
-        }
-        if (chunkSize <= 0) {
-            throw new IllegalArgumentException("分片大小必须大于 0");
+        return splitFile(sourceFile, outputDir, chunkSize, CopyEngine.CHANNEL, progressConsumer);
+    }
+
+    /**
+     * 使用指定拷贝引擎分割文件
+     * @param engine 拷贝引擎（STREAM 经堆内缓冲区，CHANNEL 走内核直拷，MMAP 按窗口内存映射）
+     * @return 分割生成的文件数量
+     */
+    public static int splitFile(File sourceFile, File outputDir, long chunkSize, CopyEngine engine,
+                                Consumer<Double> progressConsumer) throws IOException {
+        return splitFile(sourceFile, outputDir, chunkSize,
+                new SplitOptions().engine(engine).progress(ProgressListener.ofFraction(progressConsumer)));
+    }
+
+    /**
+     * 多线程并行分割文件，见 {@link SplitOptions#workers(int)}
+     * @param workers 工作线程数（<= 0 时取 CPU 核数）
+     * @param progressConsumer 进度回调（0.0 ~ 1.0），汇总所有线程的进度
+     * @return 分割生成的文件数量
+     */
+    public static int splitFileParallel(File sourceFile, File outputDir, long chunkSize, int workers,
+                                        Consumer<Double> progressConsumer) throws IOException {
+        return splitFile(sourceFile, outputDir, chunkSize,
+                new SplitOptions().workers(Math.max(0, workers)).progress(ProgressListener.ofFraction(progressConsumer)));
+    }
+
+    /**
+     * 按字节分割文件
+     * @param options 拷贝引擎、线程数、进度监听器等（进度单位为字节）
+     * @return 分割生成的文件数量
+     */
+    public static int splitFile(File sourceFile, File outputDir, long chunkSize, SplitOptions options)
+            throws IOException {
+        if (options == null) {
+            options = new SplitOptions();
         }
+        checkSourceAndChunkSize(sourceFile, chunkSize);
+        outputDir = resolveOutputDir(sourceFile, outputDir);
 
-        // 确定输出目录
-        if (outputDir == null) {
-            outputDir = sourceFile.getParentFile(); // 默认：原文件目录
-        } else if (!outputDir.exists()) {
-            if (!outputDir.mkdirs()) { // 自动创建多级目录
-                throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
-            }
-        } else if (!outputDir.isDirectory()) {
-            throw new IllegalArgumentException("输出路径不是有效文件夹: " + outputDir.getAbsolutePath());
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+        int chunkCount = checkChunkCount(totalSize, chunkSize);
+        long[] offsets = new long[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++) {
+            offsets[i] = Math.min(i * chunkSize, totalSize);
         }
+        return splitRanges(sourceFile, outputDir, offsets, options);
+    }
 
-        String fileName = sourceFile.getName();
-        int dotIndex = fileName.lastIndexOf('.');
-        String baseName = (dotIndex == -1) ? fileName : fileName.substring(0, dotIndex);
-        String extension = (dotIndex == -1) ? "" : fileName.substring(dotIndex);
+    /**
+     * 均分为恰好 parts 个分片，各分片字节数至多相差 1
+     * @param options 拷贝引擎、线程数、进度监听器等（进度单位为字节）
+     * @return 分割生成的文件数量（即 parts），源文件为空时为 0
+     */
+    public static int splitFileIntoParts(File sourceFile, File outputDir, int parts, SplitOptions options)
+            throws IOException {
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        checkSourceAndPartCount(sourceFile, parts);
+        outputDir = resolveOutputDir(sourceFile, outputDir);
 
         long totalSize = sourceFile.length();
         if (totalSize == 0) {
             return 0;
         }
-
-        long chunkCount = (totalSize + chunkSize - 1) / chunkSize; // 向上取整
-        if (chunkCount <= 1) {
+        if (parts > totalSize) {
             throw new IllegalArgumentException(
-                    String.format("文件大小（%d 字节）小于或等于分片大小（%d 字节），无需分割。", totalSize, chunkSize)
-            );
+                    String.format("文件大小（%d 字节）小于分片数量（%d），无法均分", totalSize, parts));
         }
+        return splitRanges(sourceFile, outputDir, balancedOffsets(totalSize, parts), options);
+    }
 
-        long bytesReadTotal = 0;
-        int partCounter = 1;
+    /**
+     * 按给定边界分割：offsets 长度为分片数 + 1，首项为 0、末项为文件长度且严格递增，
+     * 第 i 个分片为 [offsets[i], offsets[i + 1])。调用方负责校验源文件并准备好输出目录
+     * @return 分割生成的文件数量
+     */
+    static int splitRanges(File sourceFile, File outputDir, long[] offsets, SplitOptions options)
+            throws IOException {
+        return splitRanges(sourceFile, outputDir, offsets, options,
+                new ProgressTracker(offsets[offsets.length - 1], options.getProgressListener()));
+    }
 
-        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(sourceFile))) {
-            byte[] buffer = new byte[8192];
+    /**
+     * 同上，使用调用方提供的进度跟踪器（调用方在拷贝之前还有其他阶段需要计入进度时使用）
+     */
+    static int splitRanges(File sourceFile, File outputDir, long[] offsets, SplitOptions options,
+                           ProgressTracker tracker) throws IOException {
+        int chunkCount = offsets.length - 1;
+        DigestManifest.Entry[] entries = options.isManifestEnabled() ? new DigestManifest.Entry[chunkCount] : null;
+        String fileSha256;
+        if (options.isCompressEnabled()) {
+            fileSha256 = splitCompressed(sourceFile, outputDir, offsets, options, entries, tracker);
+        } else if (options.getWorkers() == 1) {
+            fileSha256 = splitSequential(sourceFile, outputDir, offsets, options, entries, tracker);
+        } else {
+            splitParallel(sourceFile, outputDir, offsets, options, entries, tracker);
+            fileSha256 = null; // 各分片乱序完成，无法顺序计算整文件 SHA-256
+        }
+        if (entries != null) {
+            DigestManifest.of(sourceFile.getName(), Arrays.asList(entries), fileSha256)
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+        return chunkCount;
+    }
 
-            while (bytesReadTotal < totalSize) {
-                String partName = String.format("%s_%02d%s", baseName, partCounter, extension);
-                File partFile = new File(outputDir, partName);
+    // 把 [0, totalSize) 均分为 parts 段的边界，避免 totalSize * i 溢出
+    static long[] balancedOffsets(long totalSize, int parts) {
+        long[] offsets = new long[parts + 1];
+        long quotient = totalSize / parts;
+        long remainder = totalSize % parts;
+        for (int i = 0; i <= parts; i++) {
+            offsets[i] = quotient * i + remainder * i / parts;
+        }
+        return offsets;
+    }
 
-                try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(partFile))) {
-                    long bytesWrittenToPart = 0;
-                    int bytesRead;
+    /**
+     * 从长度未知的输入流分割（如管道、标准输入），写满 chunkSize 即切换到下一个分片，读到 EOF 时确定分片总数
+     * @param fileName 原始文件名，用于生成分片名（如 dump.sql → dump_01.sql）
+     * @param options 进度监听器、校验清单等；进度单位为字节且总量未知（{@link ProgressEvent#getTotal()} 为 -1）
+     * @return 分割生成的文件数量，输入为空时为 0
+     */
+    public static int splitStream(InputStream in, File outputDir, String fileName, long chunkSize,
+                                  SplitOptions options) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("输入流不能为空");
+        }
+        return splitStream(Channels.newChannel(in), outputDir, fileName, chunkSize, options);
+    }
 
-                    while (bytesWrittenToPart < chunkSize &&
-                            (bytesRead = bis.read(buffer, 0, (int) Math.min(buffer.length, chunkSize - bytesWrittenToPart))) != -1) {
-                        bos.write(buffer, 0, bytesRead);
-                        bytesWrittenToPart += bytesRead;
-                        bytesReadTotal += bytesRead;
+    /**
+     * 从长度未知的通道分割，见 {@link #splitStream(InputStream, File, String, long, SplitOptions)}
+     */
+    public static int splitStream(ReadableByteChannel in, File outputDir, String fileName, long chunkSize,
+                                  SplitOptions options) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("输入通道不能为空");
+        }
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (fileName == null || fileName.trim().isEmpty()) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("分片大小必须大于 0");
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
+        }
+        if (!outputDir.isDirectory()) {
+            throw new IllegalArgumentException("输出路径不是有效文件夹: " + outputDir.getAbsolutePath());
+        }
 
-                        // ✅ 修正：使用正确的参数名 progressConsumer
-                        if (progressConsumer != null) {
-                            progressConsumer.accept((double) bytesReadTotal / totalSize);
+        String baseName = getBaseName(fileName);
+        String extension = partExtension(fileName, options);
+        ProgressTracker tracker = new ProgressTracker(-1, options.getProgressListener());
+        ChunkDigester digester = options.isManifestEnabled()
+                ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+        List<DigestManifest.Entry> entries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(PARALLEL_BUFFER_SIZE);
+
+        int partCounter = 0;
+        long partWritten = 0;
+        long totalWritten = 0;
+        ExecutorService pool = newCompressPool(options);
+        WritableByteChannel out = null;
+        try {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    // 当前分片已满（或尚未打开）时才创建下一个分片，避免 EOF 处产生空分片
+                    if (out == null || partWritten == chunkSize) {
+                        if (out != null) {
+                            out.close();
+                            if (digester != null) {
+                                entries.add(digester.finishPart(partName(baseName, partCounter, extension),
+                                        totalWritten - partWritten));
+                            }
                         }
+                        partCounter++;
+                        out = openPartOutput(new File(outputDir, partName(baseName, partCounter, extension)),
+                                options, pool);
+                        tracker.setCurrentPart(partCounter);
+                        partWritten = 0;
+                    }
+                    int n = (int) Math.min(buffer.remaining(), chunkSize - partWritten);
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.limit(slice.position() + n);
+                    if (digester != null) {
+                        digester.update(slice);
+                    }
+                    while (slice.hasRemaining()) {
+                        out.write(slice);
                     }
+                    buffer.position(buffer.position() + n);
+                    partWritten += n;
+                    totalWritten += n;
+                    tracker.add(n);
+                }
+                buffer.clear();
+            }
+        } finally {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
                 }
-                partCounter++;
             }
         }
 
-        return partCounter - 1;
+        if (digester != null && partCounter > 0) {
+            entries.add(digester.finishPart(partName(baseName, partCounter, extension), totalWritten - partWritten));
+            DigestManifest.of(fileName, entries, digester.finishFileSha256())
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+        return partCounter;
+    }
+
+    /*
+     * 单线程按顺序逐片拷贝。需要校验清单时数据必须经过用户态，改用堆内缓冲区边拷贝边计算摘要，
+     * 此时拷贝引擎选项不生效；返回整文件 SHA-256（未启用时为 null）
+     */
+    private static String splitSequential(File sourceFile, File outputDir, long[] offsets, SplitOptions options, DigestManifest.Entry[] entries,
+                                          ProgressTracker tracker) throws IOException {
+        String fileName = sourceFile.getName();
+        String baseName = getBaseName(fileName);
+        String extension = getExtension(fileName);
+        int chunkCount = offsets.length - 1;
+        ChunkDigester digester = entries != null
+                ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+        ByteBuffer buffer = digester != null ? ByteBuffer.allocate(PARALLEL_BUFFER_SIZE) : null;
+
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            for (int part = 0; part < chunkCount; part++) {
+                long offset = offsets[part];
+                long length = offsets[part + 1] - offset;
+                File partFile = new File(outputDir, partName(baseName, part + 1, extension));
+                tracker.setCurrentPart(part + 1);
+                try (FileChannel out = openPartChannel(partFile)) {
+                    if (digester == null) {
+                        options.getEngine().copy(in, offset, out, 0, length, tracker::add);
+                    } else {
+                        CopyEngine.copyWithBuffer(in, offset, out, 0, length, buffer, digester, tracker::add);
+                        entries[part] = digester.finishPart(partFile.getName(), offset);
+                    }
+                }
+            }
+        }
+        return digester != null ? digester.finishFileSha256() : null;
+    }
+
+    /*
+     * 块压缩输出：CPU 开销集中在压缩上，因此顺序读取源文件，由压缩线程池并行压缩各块（线程数取自 workers），
+     * 拷贝引擎选项不生效；返回整文件 SHA-256（未启用时为 null）
+     */
+    private static String splitCompressed(File sourceFile, File outputDir, long[] offsets, SplitOptions options, DigestManifest.Entry[] entries,
+                                          ProgressTracker tracker) throws IOException {
+        String fileName = sourceFile.getName();
+        String baseName = getBaseName(fileName);
+        String extension = partExtension(fileName, options);
+        int chunkCount = offsets.length - 1;
+        ChunkDigester digester = entries != null
+                ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+        ByteBuffer buffer = ByteBuffer.allocate(PARALLEL_BUFFER_SIZE);
+        ExecutorService pool = newCompressPool(options);
+
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            for (int part = 0; part < chunkCount; part++) {
+                long offset = offsets[part];
+                long end = offsets[part + 1];
+                File partFile = new File(outputDir, partName(baseName, part + 1, extension));
+                tracker.setCurrentPart(part + 1);
+                try (WritableByteChannel out = openPartOutput(partFile, options, pool)) {
+                    for (long pos = offset; pos < end; ) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+                        if (in.read(buffer, pos) < 0) {
+                            throw new EOFException("源文件在读取过程中被截断: " + sourceFile.getAbsolutePath());
+                        }
+                        buffer.flip();
+                        if (digester != null) {
+                            digester.update(buffer);
+                        }
+                        int n = buffer.remaining();
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        pos += n;
+                        tracker.add(n);
+                    }
+                }
+                if (digester != null) {
+                    entries[part] = digester.finishPart(partFile.getName(), offset);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return digester != null ? digester.finishFileSha256() : null;
+    }
+
+    /*
+     * 多线程并行分割：分片边界在开始前即已确定，第 i 个工作线程负责编号 i, i+N, i+2N ... 的分片，
+     * 各自通过 FileChannel.read(buf, position) 绝对位置读取源文件区间
+     */
+    private static void splitParallel(File sourceFile, File outputDir, long[] offsets, SplitOptions options, DigestManifest.Entry[] entries,
+                                      ProgressTracker tracker) throws IOException {
+        String fileName = sourceFile.getName();
+        String baseName = getBaseName(fileName);
+        String extension = getExtension(fileName);
+        int chunkCount = offsets.length - 1;
+        int threadCount = Math.min(resolveWorkers(options.getWorkers()), chunkCount);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "FileSplit-Parallel");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int w = 0; w < threadCount; w++) {
+                final int firstPart = w;
+                futures.add(pool.submit(() -> {
+                    // 计算摘要时用堆内缓冲区，避免从直接缓冲区再复制一次
+                    ChunkDigester digester = entries != null ? new ChunkDigester(options.isSha256Enabled(), false) : null;
+                    ByteBuffer buffer = digester != null
+                            ? ByteBuffer.allocate(PARALLEL_BUFFER_SIZE) : ByteBuffer.allocateDirect(PARALLEL_BUFFER_SIZE);
+                    for (int part = firstPart; part < chunkCount; part += threadCount) {
+                        long offset = offsets[part];
+                        long length = offsets[part + 1] - offset;
+                        File partFile = new File(outputDir, partName(baseName, part + 1, extension));
+                        tracker.setCurrentPart(part + 1);
+                        try (FileChannel out = openPartChannel(partFile)) {
+                            CopyEngine.copyWithBuffer(in, offset, out, 0, length, buffer, digester, tracker::add);
+                        }
+                        if (digester != null) {
+                            entries[part] = digester.finishPart(partFile.getName(), offset);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 以读写方式新建（或截断）分片文件
+    static FileChannel openPartChannel(File partFile) throws IOException {
+        return FileChannel.open(partFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // 按选项打开分片输出：启用压缩时为块压缩流（或多成员 gzip），否则为普通文件通道
+    static WritableByteChannel openPartOutput(File partFile, SplitOptions options, ExecutorService pool)
+            throws IOException {
+        if (!options.isCompressEnabled()) {
+            return openPartChannel(partFile);
+        }
+        return newCompressedStream(partFile, options, pool);
+    }
+
+    private static BlockCompressedOutputStream newCompressedStream(File partFile, SplitOptions options,
+                                                                   ExecutorService pool) throws IOException {
+        OutputStream file = new FileOutputStream(partFile);
+        try {
+            // 在途块数取线程数的 2 倍，保证压缩线程不空等写出
+            int maxPending = 2 * resolveWorkers(options.getWorkers());
+            if (options.isGzipEnabled()) {
+                return new BlockCompressedOutputStream(file,
+                        Math.min(options.getCompressBlockSize(), GzipUtil.MAX_BLOCK_SIZE), options.getCompressLevel(),
+                        pool, maxPending, GzipUtil.FORMAT);
+            }
+            return new BlockCompressedOutputStream(file, options.getCompressBlockSize(), options.getCompressLevel(),
+                    pool, maxPending);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    // 未启用压缩时返回 null
+    static ExecutorService newCompressPool(SplitOptions options) {
+        if (!options.isCompressEnabled()) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(resolveWorkers(options.getWorkers()), r -> {
+            Thread t = new Thread(r, "BlockCompress");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // 分片扩展名：写出 gzip 分片时追加 .gz
+    static String partExtension(String fileName, SplitOptions options) {
+        String extension = getExtension(fileName);
+        return options.isGzipEnabled() ? extension + GzipUtil.SUFFIX : extension;
+    }
+
+    // 分片命名：base_01.ext
+    static String partName(String baseName, int partIndex, String extension) {
+        return String.format("%s_%02d%s", baseName, partIndex, extension);
+    }
+
+    // 等待所有任务结束，把工作线程中的异常原样抛给调用方
+    static void awaitAll(List<? extends Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("任务被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    static int resolveWorkers(int workers) {
+        return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void checkSourceAndChunkSize(File sourceFile, long chunkSize) {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("分片大小必须大于 0");
+        }
+    }
+
+    static void checkSourceAndPartCount(File sourceFile, int parts) {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (parts <= 1) {
+            throw new IllegalArgumentException("分片数量必须大于 1");
+        }
+    }
+
+    // 确定输出目录
+    static File resolveOutputDir(File sourceFile, File outputDir) throws IOException {
+        if (outputDir == null) {
+            return sourceFile.getAbsoluteFile().getParentFile(); // 默认：原文件目录
+        }
+        if (!outputDir.exists()) {
+            if (!outputDir.mkdirs()) { // 自动创建多级目录
+                throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
+            }
+        } else if (!outputDir.isDirectory()) {
+            throw new IllegalArgumentException("输出路径不是有效文件夹: " + outputDir.getAbsolutePath());
+        }
+        return outputDir;
+    }
+
+    // 计算分片数量，只有一个分片时无需分割
+    private static int checkChunkCount(long totalSize, long chunkSize) {
+        long chunkCount = (totalSize + chunkSize - 1) / chunkSize; // 向上取整
+        if (chunkCount <= 1) {
+            throw new IllegalArgumentException(
+                    String.format("文件大小（%d 字节）小于或等于分片大小（%d 字节），无需分割。", totalSize, chunkSize)
+            );
+        }
+        if (chunkCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("分片数量过多，请增大分片大小");
+        }
+        return (int) chunkCount;
+    }
+
+    static String getBaseName(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return (dotIndex == -1) ? fileName : fileName.substring(0, dotIndex);
+    }
+
+    static String getExtension(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return (dotIndex == -1) ? "" : fileName.substring(dotIndex);
     }
 }
@@ -0,0 +1,497 @@
+package com.util;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * gzip 输入输出。读取时自动识别 BGZF 风格的多成员 gzip（每个成员在扩展字段 "BC" 中记录自身长度，
+ * 如 bgzip 的输出）：按成员边界切分后在多个线程上并行解压，再按原顺序拼接；其他 gzip 单线程流式解压。
+ * 写出时同样生成 BGZF 风格的多成员 gzip，标准 gzip / zcat 可直接解压，本工具读取时可并行解压。
+ */
+final class GzipUtil {
+
+    /** gzip 扩展名 */
+    static final String SUFFIX = ".gz";
+
+    /** BGZF 每个成员的最大原始数据量：保证压缩后（含不可压缩数据）成员总长不超过 64 KB */
+    static final int MAX_BLOCK_SIZE = 0xFF00;
+
+    private static final int ID1 = 0x1F;
+    private static final int ID2 = 0x8B;
+    private static final int FEXTRA = 0x04;
+    private static final int HEADER_SIZE = 18;  // 固定头 10 + XLEN 2 + "BC" 子字段 6
+    private static final int FOOTER_SIZE = 8;   // CRC32 + ISIZE
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /** BGZF 结束标记：一个不含数据的成员 */
+    private static final byte[] EOF_MARKER = {
+            0x1F, (byte) 0x8B, 0x08, 0x04, 0, 0, 0, 0, 0, (byte) 0xFF, 0x06, 0x00, 'B', 'C', 0x02, 0x00,
+            0x1B, 0x00, 0x03, 0x00, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    /** 以 BGZF 成员为块的写出格式，供 {@link BlockCompressedOutputStream} 使用 */
+    static final BlockCompressedOutputStream.Format FORMAT = new BlockCompressedOutputStream.Format() {
+        @Override
+        public byte[] header(int blockSize) {
+            return new byte[0];
+        }
+
+        @Override
+        public byte[] compress(byte[] data, int length, int level) {
+            return member(data, length, level);
+        }
+
+        @Override
+        public byte[] trailer(int[] compressedLengths, int[] uncompressedLengths, int blockCount, long indexOffset,
+                              long totalLength) {
+            return EOF_MARKER.clone();
+        }
+    };
+
+    private GzipUtil() {
+    }
+
+    /**
+     * 判断文件是否为 gzip 格式（只检查魔数）
+     */
+    static boolean isGzip(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // 读满 2 个字节
+            }
+            return magic.position() == 2 && (magic.get(0) & 0xFF) == ID1 && (magic.get(1) & 0xFF) == ID2;
+        }
+    }
+
+    /**
+     * 去掉文件名末尾的 .gz（不区分大小写），得到解压后内容的文件名
+     */
+    static String stripSuffix(String fileName) {
+        int end = fileName.length() - SUFFIX.length();
+        return end > 0 && fileName.regionMatches(true, end, SUFFIX, 0, SUFFIX.length())
+                ? fileName.substring(0, end) : fileName;
+    }
+
+    /**
+     * 打开 gzip 文件的解压通道
+     * @param threads 解压线程数；大于 1 且文件为 BGZF 风格时并行解压（BGZF 成员之后拼接的普通 gzip 成员改为流式解压）
+     * @param progress 已读取的压缩字节数增量回调（可为 null）
+     */
+    static ReadableByteChannel openInput(File file, int threads, LongConsumer progress) throws IOException {
+        FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (threads > 1 && memberSize(in, 0) > 0) {
+                return new BgzfChannel(in, threads, progress);
+            }
+            return streamFrom(in, 0, progress);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // 从 position 处开始流式解压；GZIPInputStream 会依次读取首尾相接的多个成员，position 处不是 gzip 头时抛出 IOException
+    private static ReadableByteChannel streamFrom(FileChannel in, long position, LongConsumer progress)
+            throws IOException {
+        in.position(position);
+        InputStream counted = new FilterInputStream(Channels.newInputStream(in)) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0 && progress != null) {
+                    progress.accept(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0 && progress != null) {
+                    progress.accept(n);
+                }
+                return n;
+            }
+        };
+        return Channels.newChannel(new GZIPInputStream(counted, STREAM_BUFFER_SIZE));
+    }
+
+    /**
+     * 解压后的数据长度：BGZF 风格的文件按各成员尾部记录的原始长度累加（只读取成员头尾），其他 gzip 需完整解压一遍
+     */
+    static long uncompressedLength(File file) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[][] index = memberIndex(in);
+            if (index != null) {
+                return index[1][index[1].length - 1];
+            }
+        }
+        long total = 0;
+        try (ReadableByteChannel in = openInput(file, 1, null)) {
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                total += n;
+                buffer.clear();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 把一块数据压缩为一个 BGZF 成员
+     */
+    static byte[] member(byte[] data, int length, int level) {
+        if (length > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("gzip 成员的数据量不能超过 " + MAX_BLOCK_SIZE + " 字节");
+        }
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            // 不可压缩的数据以存储块输出，每 16 KB 左右多 5 个字节，预留的空间足够
+            byte[] buf = new byte[HEADER_SIZE + length + (length >> 3) + 64 + FOOTER_SIZE];
+            int n = HEADER_SIZE;
+            while (!deflater.finished()) {
+                n += deflater.deflate(buf, n, buf.length - FOOTER_SIZE - n);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            int total = n + FOOTER_SIZE;
+
+            ByteBuffer header = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) ID1).put((byte) ID2).put((byte) 8).put((byte) FEXTRA)
+                    .putInt(0).put((byte) 0).put((byte) 0xFF)   // MTIME、XFL、OS（未知）
+                    .putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2)
+                    .putShort((short) (total - 1));
+            header.position(n);
+            header.putInt((int) crc.getValue()).putInt(length);
+            return java.util.Arrays.copyOf(buf, total);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /*
+     * 读取 position 处成员的头部，返回 BGZF 记录的成员总长；不是 gzip 成员或没有 "BC" 扩展字段时返回 -1，
+     * position 恰好在文件末尾时返回 0
+     */
+    private static int memberSize(FileChannel in, long position) throws IOException {
+        ByteBuffer fixed = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, fixed, position, true);
+        if (fixed.position() == 0) {
+            return 0;
+        }
+        if (fixed.position() < 12 || (fixed.get(0) & 0xFF) != ID1 || (fixed.get(1) & 0xFF) != ID2
+                || fixed.get(2) != 8 || (fixed.get(3) & FEXTRA) == 0) {
+            return -1;
+        }
+        int xlen = fixed.getShort(10) & 0xFFFF;
+        ByteBuffer extra = ByteBuffer.allocate(xlen).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, extra, position + 12, false);
+        for (int i = 0; i + 4 <= xlen; ) {
+            int slen = extra.getShort(i + 2) & 0xFFFF;
+            if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && slen == 2 && i + 6 <= xlen) {
+                return (extra.getShort(i + 4) & 0xFFFF) + 1;
+            }
+            i += 4 + slen;
+        }
+        return -1;
+    }
+
+    /*
+     * 按成员头部记录的长度逐个跳过，建立 {成员在文件中的偏移[], 成员原始数据的起始偏移[]} 索引（各多一项表示末尾）；
+     * 任一成员不是 BGZF 风格时返回 null
+     */
+    private static long[][] memberIndex(FileChannel in) throws IOException {
+        long size = in.size();
+        long[] memberOffsets = new long[16];
+        long[] dataOffsets = new long[16];
+        ByteBuffer isize = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        int count = 0;
+        long position = 0;
+        long data = 0;
+        while (position < size) {
+            int memberSize = memberSize(in, position);
+            if (memberSize < HEADER_SIZE + FOOTER_SIZE || position + memberSize > size) {
+                return null;
+            }
+            if (count + 1 >= memberOffsets.length) {
+                memberOffsets = java.util.Arrays.copyOf(memberOffsets, memberOffsets.length * 2);
+                dataOffsets = java.util.Arrays.copyOf(dataOffsets, dataOffsets.length * 2);
+            }
+            memberOffsets[count] = position;
+            dataOffsets[count] = data;
+            count++;
+            isize.clear();
+            readFully(in, isize, position + memberSize - 4, false);
+            data += isize.getInt(0) & 0xFFFFFFFFL;
+            position += memberSize;
+        }
+        memberOffsets[count] = position;
+        dataOffsets[count] = data;
+        return new long[][]{java.util.Arrays.copyOf(memberOffsets, count + 1),
+                java.util.Arrays.copyOf(dataOffsets, count + 1)};
+    }
+
+    // 解压一个完整的 BGZF 成员并校验 CRC32 与长度
+    private static byte[] inflateMember(byte[] member, long position) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN);
+        int dataStart = 12 + (bb.getShort(10) & 0xFFFF);
+        int dataEnd = member.length - FOOTER_SIZE;
+        int expectedCrc = bb.getInt(dataEnd);
+        int length = bb.getInt(dataEnd + 4);
+        if (dataStart > dataEnd || length < 0 || length > MAX_BLOCK_SIZE * 2) {
+            throw new IOException("gzip 成员头部无效，偏移 " + position);
+        }
+        byte[] data = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, dataStart, dataEnd - dataStart);
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int r = inflater.inflate(data, n, length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += r;
+            }
+            if (n != length) {
+                throw new IOException(String.format("gzip 成员解压后长度不符（偏移 %d，期望 %d，实际 %d）",
+                        position, length, n));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("gzip 成员数据损坏（偏移 %d）: %s", position, e.getMessage()), e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("gzip 成员 CRC32 校验失败，偏移 " + position);
+        }
+        return data;
+    }
+
+    // 读满缓冲区；allowEof 为 true 时遇到文件末尾直接返回（由调用方检查读取的字节数）
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position, boolean allowEof)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                if (allowEof) {
+                    return;
+                }
+                throw new EOFException("gzip 文件意外结束");
+            }
+        }
+    }
+
+    /**
+     * BGZF 风格 gzip 的随机读取：打开时按成员头尾建立索引，读取时只解压涉及到的成员，并缓存最近解压的一个成员。
+     * 关闭时不关闭传入的通道；非线程安全
+     */
+    static final class RandomAccess {
+        private final FileChannel in;
+        private final long[] memberOffsets;
+        private final long[] dataOffsets;
+        private int cachedMember = -1;
+        private byte[] cachedData;
+
+        private RandomAccess(FileChannel in, long[][] index) {
+            this.in = in;
+            this.memberOffsets = index[0];
+            this.dataOffsets = index[1];
+        }
+
+        /**
+         * 建立成员索引，文件不是 BGZF 风格（成员没有记录自身长度）时抛出 IOException
+         */
+        static RandomAccess open(FileChannel in) throws IOException {
+            long[][] index = memberIndex(in);
+            if (index == null) {
+                throw new IOException("不是 BGZF 格式的 gzip，无法随机读取");
+            }
+            return new RandomAccess(in, index);
+        }
+
+        /** 原始（解压后）数据的总长度 */
+        long length() {
+            return dataOffsets[dataOffsets.length - 1];
+        }
+
+        /**
+         * 从原始数据的 position 处读取最多 len 个字节
+         * @return 实际读取的字节数，position 超出末尾时返回 -1
+         */
+        int read(long position, byte[] b, int off, int len) throws IOException {
+            if (position >= length()) {
+                return -1;
+            }
+            int total = 0;
+            while (len > 0 && position < length()) {
+                int member = findMember(position);
+                if (member != cachedMember) {
+                    byte[] raw = new byte[(int) (memberOffsets[member + 1] - memberOffsets[member])];
+                    readFully(in, ByteBuffer.wrap(raw), memberOffsets[member], false);
+                    cachedData = inflateMember(raw, memberOffsets[member]);
+                    cachedMember = member;
+                }
+                int inMember = (int) (position - dataOffsets[member]);
+                int n = Math.min(len, cachedData.length - inMember);
+                if (n <= 0) {
+                    throw new IOException("gzip 成员长度与索引不符，偏移 " + memberOffsets[member]);
+                }
+                System.arraycopy(cachedData, inMember, b, off, n);
+                position += n;
+                off += n;
+                len -= n;
+                total += n;
+            }
+            return total;
+        }
+
+        // dataOffsets[i] <= position 的最大 i，不含数据的成员（如结束标记）自然被跳过
+        private int findMember(long position) {
+            int low = 0;
+            int high = dataOffsets.length - 2;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (dataOffsets[mid] <= position) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /*
+     * 并行解压 BGZF：调用线程按成员边界顺序读取压缩数据，解压任务提交到线程池，
+     * 按提交顺序取回结果，保证输出顺序；同时在途的成员数有上限。遇到不带长度字段的成员（如 BGZF 文件后拼接的
+     * 普通 gzip）时，先取完已提交的成员，再从该成员起改为流式解压；该处不是 gzip 头（数据损坏）时同样抛出异常
+     */
+    private static final class BgzfChannel implements ReadableByteChannel {
+        private final FileChannel in;
+        private final long size;
+        private final ExecutorService pool;
+        private final int maxPending;
+        private final LongConsumer progress;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private ByteBuffer current = ByteBuffer.allocate(0);
+        private long position;
+        private boolean plainTail;           // position 起的成员不是 BGZF 风格
+        private ReadableByteChannel tail;    // plainTail 部分的流式解压通道
+        private boolean open = true;
+
+        BgzfChannel(FileChannel in, int threads, LongConsumer progress) throws IOException {
+            this.in = in;
+            this.size = in.size();
+            this.progress = progress;
+            this.maxPending = threads * 4;
+            this.pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "GzipInflate");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            while (!current.hasRemaining()) {
+                submitMembers();
+                if (pending.isEmpty()) {
+                    if (!plainTail) {
+                        return -1;
+                    }
+                    if (tail == null) {
+                        tail = streamFrom(in, position, progress);
+                    }
+                    return tail.read(dst);
+                }
+                current = ByteBuffer.wrap(take(pending.removeFirst()));
+            }
+            int n = Math.min(dst.remaining(), current.remaining());
+            int limit = current.limit();
+            current.limit(current.position() + n);
+            dst.put(current);
+            current.limit(limit);
+            return n;
+        }
+
+        private void submitMembers() throws IOException {
+            while (pending.size() < maxPending && position < size && !plainTail) {
+                long memberPosition = position;
+                int memberSize = memberSize(in, memberPosition);
+                if (memberSize <= 0) {
+                    plainTail = true;
+                    return;
+                }
+                byte[] member = new byte[memberSize];
+                readFully(in, ByteBuffer.wrap(member), memberPosition, false);
+                position += memberSize;
+                if (progress != null) {
+                    progress.accept(memberSize);
+                }
+                pending.addLast(pool.submit(() -> inflateMember(member, memberPosition)));
+            }
+        }
+
+        private byte[] take(Future<byte[]> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("解压被中断");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("gzip 解压失败", cause);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            for (Future<byte[]> f : pending) {
+                f.cancel(true);
+            }
+            pending.clear();
+            pool.shutdownNow();
+            if (tail != null) {
+                tail.close();
+            }
+            in.close();
+        }
+    }
+}
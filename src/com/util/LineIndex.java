@@ -0,0 +1,240 @@
+package com.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 稀疏行索引：记录源文件中每隔 K 行的行首字节偏移，定位任意行时只需从最近的索引点向后扫描不到 K 行。
+ * 索引保存在源文件旁的 {@code <文件名>.lineidx} 中，复用时直接内存映射，源文件大小或修改时间变化即视为失效并重建。
+ * 行的划分与 {@link LogSplitUtil} 一致：以 '\n' 结束，末尾没有换行符的剩余字节也算一行。
+ * <pre>
+ * 头部  魔数 "AFCLIDX1"(8)  源文件长度(long)  源文件修改时间(long)  间隔 K(long)  总行数(long)  索引点个数(long)
+ * 数据  第 0, K, 2K ... 行的行首偏移(long) × 索引点个数
+ * </pre>
+ * 非线程安全。
+ */
+public class LineIndex implements Closeable {
+
+    /** 默认索引间隔（行） */
+    public static final int DEFAULT_INTERVAL = 1024;
+
+    /** 索引文件后缀 */
+    public static final String SUFFIX = ".lineidx";
+
+    private static final byte[] MAGIC = "AFCLIDX1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 5 * 8;
+    private static final int BUILD_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int SEEK_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel source;
+    private final long sourceLength;
+    private final long interval;
+    private final long lineCount;
+    private final LongBuffer entries;
+    private final MappedByteBuffer mapped; // 从索引文件加载时非 null
+    private final ByteBuffer seekBuffer = ByteBuffer.allocateDirect(SEEK_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private LineIndex(FileChannel source, long sourceLength, long interval, long lineCount, LongBuffer entries,
+                      MappedByteBuffer mapped) {
+        this.source = source;
+        this.sourceLength = sourceLength;
+        this.interval = interval;
+        this.lineCount = lineCount;
+        this.entries = entries;
+        this.mapped = mapped;
+    }
+
+    /**
+     * 按默认间隔打开源文件的行索引，见 {@link #open(File, int)}
+     */
+    public static LineIndex open(File sourceFile) throws IOException {
+        return open(sourceFile, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * 打开源文件的行索引：索引文件有效时直接内存映射（此时沿用其原有间隔），否则扫描源文件重建并写出索引文件；
+     * 源文件所在目录不可写时只在内存中保留索引
+     * @param interval 重建时使用的索引间隔（行）
+     */
+    public static LineIndex open(File sourceFile, int interval) throws IOException {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("索引间隔必须大于 0");
+        }
+        FileChannel source = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+        try {
+            LineIndex index = load(sourceFile, source);
+            return index != null ? index : build(sourceFile, source, interval);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /** 索引文件路径 */
+    public static File indexFileOf(File sourceFile) {
+        return new File(sourceFile.getAbsoluteFile().getParentFile(), sourceFile.getName() + SUFFIX);
+    }
+
+    /** 总行数（末尾不带换行符的剩余字节也算一行） */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * 第 line 行（从 0 开始）的行首字节偏移；line 等于总行数时返回文件长度
+     */
+    public long offsetOfLine(long line) throws IOException {
+        if (line < 0 || line > lineCount) {
+            throw new IllegalArgumentException(String.format("行号超出范围: %d（共 %d 行）", line, lineCount));
+        }
+        if (line == lineCount) {
+            return sourceLength;
+        }
+        long pos = entries.get((int) (line / interval));
+        long remaining = line % interval;
+        while (remaining > 0) {
+            seekBuffer.clear();
+            int n = source.read(seekBuffer, pos);
+            if (n <= 0) {
+                throw new IOException("源文件在索引建立后被截断");
+            }
+            long found = LineScanner.scan(seekBuffer, 0, n, remaining);
+            if (found >= 0) {
+                return pos + found + 1;
+            }
+            remaining -= -1 - found;
+            pos += n;
+        }
+        return pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mapped != null) {
+            MappedBufferUtil.unmap(mapped);
+        }
+        source.close();
+    }
+
+    // 读取并校验索引文件，无效时返回 null
+    private static LineIndex load(File sourceFile, FileChannel source) throws IOException {
+        File indexFile = indexFileOf(sourceFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[MAGIC.length];
+            mapped.get(magic);
+            long length = mapped.getLong();
+            long mtime = mapped.getLong();
+            long interval = mapped.getLong();
+            long lineCount = mapped.getLong();
+            long entryCount = mapped.getLong();
+            boolean valid = Arrays.equals(magic, MAGIC)
+                    && length == source.size() && mtime == sourceFile.lastModified()
+                    && interval > 0 && lineCount >= 0
+                    && entryCount == (lineCount + interval - 1) / interval
+                    && size == HEADER_SIZE + 8 * entryCount;
+            if (!valid) {
+                MappedBufferUtil.unmap(mapped);
+                return null;
+            }
+            LongBuffer entries = mapped.slice().asLongBuffer(); // 通道关闭后映射仍然有效
+            return new LineIndex(source, length, interval, lineCount, entries, mapped);
+        }
+    }
+
+    // 顺序扫描源文件建立索引，并尽量写出索引文件
+    private static LineIndex build(File sourceFile, FileChannel source, int interval) throws IOException {
+        long mtime = sourceFile.lastModified();
+        long length = source.size();
+        long[] entries = new long[16];
+        int entryCount = 0;
+        if (length > 0) {
+            entries[entryCount++] = 0; // 第 0 行
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUILD_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long newlines = 0;       // 已扫描到的换行符个数
+        long target = interval;  // 第 target 个换行符之后即下一个索引点的行首
+        byte lastByte = '\n';
+        long pos = 0;            // buffer[0] 在文件中的偏移
+        int n;
+        while (pos < length) {
+            buffer.limit((int) Math.min(buffer.capacity(), length - pos)); // 扫描期间源文件被追加时只索引原有部分
+            if ((n = source.read(buffer, pos)) <= 0) {
+                break;
+            }
+            int i = 0;
+            while (i < n) {
+                long found = LineScanner.scan(buffer, i, n, target - newlines);
+                if (found < 0) {
+                    newlines += -1 - found;
+                    break;
+                }
+                newlines = target;
+                target += interval;
+                i = (int) found + 1;
+                if (pos + i < length) {
+                    if (entryCount == entries.length) {
+                        entries = Arrays.copyOf(entries, entryCount * 2);
+                    }
+                    entries[entryCount++] = pos + i;
+                }
+            }
+            lastByte = buffer.get(n - 1);
+            pos += n;
+            buffer.clear();
+        }
+        long lineCount = newlines + (lastByte != '\n' ? 1 : 0);
+
+        long[] finalEntries = Arrays.copyOf(entries, entryCount);
+        try {
+            write(indexFileOf(sourceFile), length, mtime, interval, lineCount, finalEntries);
+        } catch (IOException ignored) {
+            // 目录不可写等情况：仅在内存中使用索引
+        }
+        return new LineIndex(source, length, interval, lineCount, LongBuffer.wrap(finalEntries), null);
+    }
+
+    // 先写临时文件再改名，避免其他进程读到写了一半的索引
+    private static void write(File indexFile, long length, long mtime, long interval, long lineCount,
+                              long[] entries) throws IOException {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * entries.length);
+        buffer.put(MAGIC).putLong(length).putLong(mtime).putLong(interval).putLong(lineCount).putLong(entries.length);
+        buffer.asLongBuffer().put(entries);
+        buffer.clear();
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
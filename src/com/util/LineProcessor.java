@@ -0,0 +1,359 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分割过程中逐行执行的过滤与改写：按添加顺序依次执行，任一过滤条件不满足即丢弃该行，
+ * 改写（替换、脱敏）的结果交给后续步骤，最终写入分片。数据只读一遍，不需要分割后再 grep、再脱敏。
+ * <p>
+ * 所有步骤直接作用于原始字节，行尾的 "\r\n" / "\n" 不参与匹配，写出时原样保留。
+ * 字面文本按 UTF-8 编码后逐字节查找（每次比较 8 个字节，远快于正则）；正则按 ISO-8859-1 逐字节匹配，
+ * 模式为 ASCII 时与按字符匹配一致。同时统计保留、丢弃与改写的行数。非线程安全。
+ * 见 {@link SplitOptions#lineProcessor(LineProcessor)}
+ */
+public class LineProcessor {
+
+    // 邮箱地址 '@' 之后的部分
+    private static final String EMAIL_DOMAIN_REGEX = "[A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,}";
+
+    /** 常见的邮箱地址格式 */
+    public static final String EMAIL_REGEX = "[A-Za-z0-9._%+-]+@" + EMAIL_DOMAIN_REGEX;
+
+    /** {@link #process} 的结果：丢弃 */
+    static final int DROPPED = 0;
+    /** {@link #process} 的结果：原样保留 */
+    static final int KEPT = 1;
+    /** {@link #process} 的结果：内容被改写，见 {@link #output()} */
+    static final int MODIFIED = 2;
+
+    private final List<Step> steps = new ArrayList<>();
+    private final ByteSequence sequence = new ByteSequence();
+    // 改写结果在两个缓冲区之间交替：上一步的输出是下一步的输入
+    private ByteBuffer result = newScratch(256);
+    private ByteBuffer spare = newScratch(256);
+
+    private long linesKept;
+    private long linesDropped;
+    private long linesModified;
+
+    /**
+     * 只保留包含 text 的行
+     */
+    public LineProcessor keepContaining(String text) {
+        steps.add(new LiteralFilter(bytesOf(text), true));
+        return this;
+    }
+
+    /**
+     * 丢弃包含 text 的行（如 " DEBUG "）
+     */
+    public LineProcessor dropContaining(String text) {
+        steps.add(new LiteralFilter(bytesOf(text), false));
+        return this;
+    }
+
+    /**
+     * 只保留能找到正则匹配（{@link Matcher#find()}）的行
+     */
+    public LineProcessor keepMatching(String regex) {
+        steps.add(new RegexFilter(Pattern.compile(regex), true));
+        return this;
+    }
+
+    /**
+     * 丢弃能找到正则匹配的行
+     */
+    public LineProcessor dropMatching(String regex) {
+        steps.add(new RegexFilter(Pattern.compile(regex), false));
+        return this;
+    }
+
+    /**
+     * 把行中所有的 text 替换为 replacement
+     */
+    public LineProcessor replace(String text, String replacement) {
+        byte[] target = bytesOf(text);
+        if (target.length == 0) {
+            throw new IllegalArgumentException("被替换的文本不能为空");
+        }
+        steps.add(new LiteralReplace(target, replacementOf(replacement)));
+        return this;
+    }
+
+    /**
+     * 把行中所有与正则匹配的内容替换为 replacement（按字面替换，不解析 $1 等分组引用），
+     * 如 {@code replaceMatching("(?<=token=)[^&\\s]+", "***")}
+     */
+    public LineProcessor replaceMatching(String regex, String replacement) {
+        steps.add(new RegexReplace(Pattern.compile(regex), replacementOf(replacement)));
+        return this;
+    }
+
+    /**
+     * 把邮箱地址（{@link #EMAIL_REGEX}）替换为 replacement，结果与 {@code replaceMatching(EMAIL_REGEX, replacement)} 相同；
+     * 只在每个 '@' 处向前找用户名、向后匹配域名，不含 '@' 的行不执行正则
+     */
+    public LineProcessor redactEmails(String replacement) {
+        steps.add(new EmailReplace(replacementOf(replacement)));
+        return this;
+    }
+
+    /** 写入分片的行数 */
+    public long getLinesKept() {
+        return linesKept;
+    }
+
+    /** 被过滤条件丢弃的行数 */
+    public long getLinesDropped() {
+        return linesDropped;
+    }
+
+    /** 写入分片的行中内容被改写的行数 */
+    public long getLinesModified() {
+        return linesModified;
+    }
+
+    /** 是否没有添加任何步骤 */
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * 处理一行 [from, to)（不含换行符），使用绝对位置读取，不改变缓冲区状态
+     * @return {@link #DROPPED}、{@link #KEPT} 或 {@link #MODIFIED}（改写后的内容见 {@link #output()}）
+     */
+    int process(ByteBuffer line, int from, int to) {
+        ByteBuffer current = line;
+        int start = from;
+        int end = to;
+        boolean modified = false;
+        for (Step step : steps) {
+            if (step instanceof Filter) {
+                if (!((Filter) step).accept(current, start, end)) {
+                    linesDropped++;
+                    return DROPPED;
+                }
+            } else {
+                spare.clear();
+                if (((Replace) step).apply(current, start, end)) {
+                    ByteBuffer done = spare;
+                    spare = result;
+                    result = done;
+                    current = result;
+                    start = 0;
+                    end = result.position();
+                    modified = true;
+                }
+            }
+        }
+        linesKept++;
+        if (modified) {
+            linesModified++;
+            return MODIFIED;
+        }
+        return KEPT;
+    }
+
+    /**
+     * 最近一次返回 {@link #MODIFIED} 的改写结果，内容为 [0, position)，在下一次 {@link #process} 前有效
+     */
+    ByteBuffer output() {
+        return result;
+    }
+
+    private static ByteBuffer newScratch(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] bytesOf(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("匹配文本不能为空");
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] replacementOf(String replacement) {
+        return replacement != null ? replacement.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    // 向 spare 追加 src 中 [from, to) 的字节，容量不足时扩容
+    private void appendSpare(ByteBuffer src, int from, int to) {
+        ensureSpare(to - from);
+        ByteBuffer view = src.duplicate();
+        view.limit(to).position(from);
+        spare.put(view);
+    }
+
+    private void appendSpare(byte[] bytes) {
+        ensureSpare(bytes.length);
+        spare.put(bytes);
+    }
+
+    private void ensureSpare(int length) {
+        if (spare.remaining() < length) {
+            int capacity = Math.max(spare.capacity() * 2, spare.position() + length);
+            ByteBuffer grown = newScratch(capacity);
+            spare.flip();
+            grown.put(spare);
+            spare = grown;
+        }
+    }
+
+    private interface Step {
+    }
+
+    private interface Filter extends Step {
+        boolean accept(ByteBuffer line, int from, int to);
+    }
+
+    /** 改写步骤：有改动时把结果写入 spare 并返回 true，没有改动时返回 false 且不写 spare */
+    private interface Replace extends Step {
+        boolean apply(ByteBuffer line, int from, int to);
+    }
+
+    private static final class LiteralFilter implements Filter {
+        private final byte[] text;
+        private final boolean keep;
+
+        LiteralFilter(byte[] text, boolean keep) {
+            this.text = text;
+            this.keep = keep;
+        }
+
+        @Override
+        public boolean accept(ByteBuffer line, int from, int to) {
+            return (LineScanner.indexOf(line, from, to, text) >= 0) == keep;
+        }
+    }
+
+    private final class RegexFilter implements Filter {
+        private final Matcher matcher;
+        private final boolean keep;
+
+        RegexFilter(Pattern pattern, boolean keep) {
+            this.matcher = pattern.matcher("");
+            this.keep = keep;
+        }
+
+        @Override
+        public boolean accept(ByteBuffer line, int from, int to) {
+            sequence.set(line, from, to);
+            return matcher.reset(sequence).find() == keep;
+        }
+    }
+
+    private final class LiteralReplace implements Replace {
+        private final byte[] target;
+        private final byte[] replacement;
+
+        LiteralReplace(byte[] target, byte[] replacement) {
+            this.target = target;
+            this.replacement = replacement;
+        }
+
+        @Override
+        public boolean apply(ByteBuffer line, int from, int to) {
+            int found = LineScanner.indexOf(line, from, to, target);
+            if (found < 0) {
+                return false;
+            }
+            int copied = from;
+            while (found >= 0) {
+                appendSpare(line, copied, found);
+                appendSpare(replacement);
+                copied = found + target.length;
+                found = LineScanner.indexOf(line, copied, to, target);
+            }
+            appendSpare(line, copied, to);
+            return true;
+        }
+    }
+
+    private final class RegexReplace implements Replace {
+        private final Matcher matcher;
+        private final byte[] replacement;
+
+        RegexReplace(Pattern pattern, byte[] replacement) {
+            this.matcher = pattern.matcher("");
+            this.replacement = replacement;
+        }
+
+        @Override
+        public boolean apply(ByteBuffer line, int from, int to) {
+            sequence.set(line, from, to);
+            matcher.reset(sequence);
+            int copied = 0;
+            boolean changed = false;
+            while (matcher.find()) {
+                if (matcher.end() == matcher.start()) {
+                    continue; // 空匹配不替换
+                }
+                appendSpare(line, from + copied, from + matcher.start());
+                appendSpare(replacement);
+                copied = matcher.end();
+                changed = true;
+            }
+            if (changed) {
+                appendSpare(line, from + copied, to);
+            }
+            return changed;
+        }
+    }
+
+    /*
+     * 邮箱脱敏：在整行上执行 EMAIL_REGEX 时，正则会从每个位置尝试匹配用户名，长单词上代价是平方级的。
+     * 用户名由不含 '@' 的字符组成，匹配必然紧贴某个 '@'：对每个 '@' 向前取最长的用户名（不越过上一处匹配），
+     * 再从 '@' 之后用域名正则 lookingAt，得到的结果与整行执行 EMAIL_REGEX 一致
+     */
+    private final class EmailReplace implements Replace {
+        private final byte[] at = {'@'};
+        private final Matcher domain = Pattern.compile(EMAIL_DOMAIN_REGEX).matcher("");
+        private final byte[] replacement;
+
+        EmailReplace(byte[] replacement) {
+            this.replacement = replacement;
+        }
+
+        @Override
+        public boolean apply(ByteBuffer line, int from, int to) {
+            int found = LineScanner.indexOf(line, from, to, at);
+            if (found < 0) {
+                return false;
+            }
+            boolean changed = false;
+            int copied = from;
+            sequence.set(line, from, to);
+            while (found >= 0) {
+                int start = found;
+                while (start > copied && isLocalPart(line.get(start - 1))) {
+                    start--;
+                }
+                if (start < found && domain.reset(sequence).region(found + 1 - from, to - from).lookingAt()) {
+                    int end = from + domain.end();
+                    appendSpare(line, copied, start);
+                    appendSpare(replacement);
+                    copied = end;
+                    changed = true;
+                    found = LineScanner.indexOf(line, end, to, at);
+                } else {
+                    found = LineScanner.indexOf(line, found + 1, to, at);
+                }
+            }
+            if (changed) {
+                appendSpare(line, copied, to);
+            }
+            return changed;
+        }
+
+        private boolean isLocalPart(byte b) {
+            return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                    || b == '.' || b == '_' || b == '%' || b == '+' || b == '-';
+        }
+    }
+}
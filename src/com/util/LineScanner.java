@@ -0,0 +1,167 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 在字节缓冲区中查找换行符（'\n'）与字面字节串。每次读取 8 个字节，用位运算同时判断其中哪些字节是目标字节，
+ * 不解码字符、不分配对象，适合在大缓冲区上反复调用。'\r' 不视为行结束，CRLF 的 '\r' 留在行内原样保留。
+ */
+final class LineScanner {
+
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private LineScanner() {
+    }
+
+    /**
+     * 在 [from, to) 中查找第 n 个换行符（n >= 1），使用绝对位置读取，不改变缓冲区状态
+     * @return 找到时返回该换行符的下标（>= 0）；否则返回 -1 - 区间内的换行符个数
+     */
+    static long scan(ByteBuffer buffer, int from, int to, long n) {
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        long count = 0;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = buffer.getLong(i);
+            long mask = newlineMask(bigEndian ? Long.reverseBytes(word) : word);
+            if (mask == 0) {
+                continue;
+            }
+            int c = Long.bitCount(mask);
+            if (count + c >= n) {
+                // 逐个去掉最低位的匹配，剩下的最低位即第 n 个换行符
+                for (long k = n - count; k > 1; k--) {
+                    mask &= mask - 1;
+                }
+                return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+            count += c;
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == '\n' && ++count == n) {
+                return i;
+            }
+        }
+        return -1 - count;
+    }
+
+    /**
+     * 统计 [from, to) 中的换行符个数
+     */
+    static long countNewlines(ByteBuffer buffer, int from, int to) {
+        return -1 - scan(buffer, from, to, Long.MAX_VALUE);
+    }
+
+    /**
+     * 从后向前查找 [from, to) 中最后一个换行符，使用绝对位置读取，不改变缓冲区状态
+     * @return 该换行符的下标，没有时返回 -1
+     */
+    static int lastNewline(ByteBuffer buffer, int from, int to) {
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        int i = to;
+        for (; i - 8 >= from; i -= 8) {
+            long word = buffer.getLong(i - 8);
+            long mask = newlineMask(bigEndian ? Long.reverseBytes(word) : word);
+            if (mask != 0) {
+                // 小端序下最高位的匹配即地址最大的换行符
+                return i - 8 + ((63 - Long.numberOfLeadingZeros(mask)) >>> 3);
+            }
+        }
+        for (i--; i >= from; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在 [from, to) 中查找字节串 needle 第一次出现的位置，使用绝对位置读取，不改变缓冲区状态。
+     * 按 8 字节一组查找 needle 中最不常见的一个字节（大写字母、标点优先于空格、小写字母），命中后再比较整个字节串
+     * @return 起始下标，没有时返回 -1
+     */
+    static int indexOf(ByteBuffer buffer, int from, int to, byte[] needle) {
+        if (needle.length == 0) {
+            return from <= to ? from : -1;
+        }
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        int anchor = rarestByte(needle);
+        byte target = needle[anchor];
+        long pattern = 0x0101010101010101L * (target & 0xFF);
+        // 在 [from + anchor, to - needle.length + anchor] 中查找 target，命中位置减去 anchor 即为起点
+        int i = from + anchor;
+        int last = to - needle.length + anchor;
+        while (i <= last) {
+            if (i + 8 <= to) {
+                long word = buffer.getLong(i);
+                long mask = byteMask(bigEndian ? Long.reverseBytes(word) : word, pattern);
+                while (mask != 0) {
+                    int hit = i + (Long.numberOfTrailingZeros(mask) >>> 3);
+                    if (hit > last) {
+                        return -1;
+                    }
+                    if (matchesAt(buffer, hit - anchor, needle)) {
+                        return hit - anchor;
+                    }
+                    mask &= mask - 1;
+                }
+                i += 8;
+            } else {
+                if (buffer.get(i) == target && matchesAt(buffer, i - anchor, needle)) {
+                    return i - anchor;
+                }
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    // 按日志文本中的大致出现频率选择定位字节：空格最常见，其次小写字母、数字，大写字母与其他字节较少见
+    private static int rarestByte(byte[] needle) {
+        int best = 0;
+        int bestRank = -1;
+        for (int k = 0; k < needle.length; k++) {
+            int b = needle[k] & 0xFF;
+            int rank;
+            if (b == ' ') {
+                rank = 0;
+            } else if (b >= 'a' && b <= 'z') {
+                rank = 1;
+            } else if (b >= '0' && b <= '9') {
+                rank = 2;
+            } else if (b >= 'A' && b <= 'Z') {
+                rank = 3;
+            } else {
+                rank = 4;
+            }
+            if (rank > bestRank) {
+                best = k;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    private static boolean matchesAt(ByteBuffer buffer, int at, byte[] needle) {
+        for (int k = 0; k < needle.length; k++) {
+            if (buffer.get(at + k) != needle[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 小端序字中等于 '\n' 的字节，其最高位置 1，其余位为 0（精确判断，不会误报）
+    private static long newlineMask(long word) {
+        return byteMask(word, NEWLINES);
+    }
+
+    // 小端序字中等于 pattern 各字节（8 个相同字节）的字节，其最高位置 1，其余位为 0
+    private static long byteMask(long word, long pattern) {
+        long x = word ^ pattern;
+        long t = (x & LOW7) + LOW7;
+        return ~(t | x | LOW7);
+    }
+}
@@ -0,0 +1,572 @@
+package com.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 跟踪正在写入的日志，增量按行分割：每次只读取上次处理位置之后新增的完整行，追加到当前分片，
+ * 达到行数或字节上限时滚动到下一个分片（命名同 {@link LogSplitUtil}：base_01.ext, base_02.ext ...）。
+ * <p>
+ * 处理进度保存在输出目录的检查点文件 {@link #CHECKPOINT_FILE_NAME} 中（先写临时文件再改名），
+ * 重启后从检查点继续，不重新扫描已处理的内容；当前分片中检查点之后的多余字节（上次异常退出时写了一半）会被截掉。
+ * <p>
+ * 日志轮转的处理：
+ * <ul>
+ *   <li>改名轮转（app.log → app.log.1，再新建 app.log）：先把旧文件剩余内容处理完，再从新文件开头继续；
+ *       停止期间发生的改名轮转，按文件标识（inode）在同目录查找旧文件补齐剩余内容</li>
+ *   <li>截断轮转（copytruncate）：文件变短或文件开头的内容与记录不符时，视为新文件从头开始</li>
+ * </ul>
+ * 两次处理之间连续轮转了两次时（如停止期间），只能补齐检查点记录的那一个旧文件。
+ * 轮转后的内容总是从新的分片开始。非线程安全，只有 {@link #stop()} 可在其他线程调用。
+ */
+public class LogFollower implements Closeable {
+
+    /** 检查点文件名（位于输出目录） */
+    public static final String CHECKPOINT_FILE_NAME = "!follow_checkpoint.properties";
+
+    /** 默认轮询间隔：文件系统不支持变更通知（如网络文件系统）时，按该间隔检查文件大小 */
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /** 用于识别截断轮转的文件开头字节数 */
+    private static final int HEAD_SIZE = 1024;
+
+    /** 收到变更通知后稍等片刻再处理，把连续的多次写入合并为一次 */
+    private static final long BATCH_MILLIS = 100;
+
+    private final File sourceFile;
+    private final File outputDir;
+    private final File checkpointFile;
+    private final int maxLines;
+    private final long maxBytes;
+    private final String baseName;
+    private final String extension;
+    private final ProgressTracker tracker;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    // 当前读取的源文件，源文件被改名且新文件尚未创建时为 null
+    private FileChannel in;
+    private String fileKey;
+    private long offset;
+    private int headLength;
+    private long headCrc;
+
+    // 当前分片：out 为 null 表示已写满（或尚未创建），下一段数据写入新分片
+    private FileChannel out;
+    private int part;
+    private long partLines;
+    private long partBytes;
+
+    private volatile boolean stopped;
+    private volatile WatchService watcher;
+
+    private LogFollower(File sourceFile, File outputDir, int maxLines, long maxBytes, SplitOptions options) {
+        this.sourceFile = sourceFile.getAbsoluteFile();
+        this.outputDir = outputDir;
+        this.checkpointFile = new File(outputDir, CHECKPOINT_FILE_NAME);
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        String fileName = sourceFile.getName();
+        this.baseName = FileSplitUtil.getBaseName(fileName);
+        this.extension = FileSplitUtil.getExtension(fileName);
+        this.tracker = new ProgressTracker(-1, options.getProgressListener());
+    }
+
+    /**
+     * 开始跟踪日志：输出目录中有检查点时从检查点继续，否则从文件开头开始
+     * @param maxLines 每个分片的最大行数，0 表示不限制
+     * @param maxBytes 每个分片的最大字节数，0 表示不限制（单行超过上限时单独成为一个分片）；两个上限至少设置一个
+     * @param options 进度监听器（进度单位为字节，总量未知）；不支持校验清单、压缩与多行记录
+     */
+    public static LogFollower open(File sourceFile, File outputDir, int maxLines, long maxBytes,
+                                   SplitOptions options) throws IOException {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (maxLines < 0 || maxBytes < 0 || (maxLines == 0 && maxBytes == 0)) {
+            throw new IllegalArgumentException("每片行数与字节数上限不能为负数，且至少设置一个");
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        if (options.isManifestEnabled() || options.isCompressEnabled() || options.getRecordStart() != null) {
+            throw new IllegalArgumentException("跟踪模式的分片持续追加，不支持校验清单、压缩与多行记录");
+        }
+        if (GzipUtil.isGzip(sourceFile)) {
+            throw new IllegalArgumentException("跟踪模式不支持 gzip 压缩的日志: " + sourceFile.getName());
+        }
+        File dir = FileSplitUtil.resolveOutputDir(sourceFile, outputDir);
+
+        LogFollower follower = new LogFollower(sourceFile, dir, maxLines, maxBytes, options);
+        try {
+            follower.restore();
+            follower.saveCheckpoint(); // 立即记录当前源文件的标识，停止期间发生轮转时才能找到旧文件
+        } catch (IOException | RuntimeException e) {
+            follower.close();
+            throw e;
+        }
+        return follower;
+    }
+
+    /**
+     * 处理当前已写入的全部完整行（末尾尚未写完的一行留待下次），处理轮转，并保存检查点
+     * @return 本次处理的源文件字节数
+     */
+    public long poll() throws IOException {
+        long consumed = 0;
+        boolean changed = false;
+        String currentKey = fileKeyOf(sourceFile.toPath());
+        if (in != null && (!sourceFile.exists()
+                || currentKey != null && fileKey != null && !currentKey.equals(fileKey))) {
+            // 改名轮转：旧文件不会再有新内容，连同末尾不完整的一行一起处理完
+            consumed += drain(true);
+            in.close();
+            in = null;
+            finishPart();
+            changed = true;
+        }
+        if (in == null) {
+            if (!sourceFile.exists()) {
+                if (changed) {
+                    saveCheckpoint();
+                }
+                return consumed;
+            }
+            openSource(0);
+            changed = true;
+        } else if (isTruncated()) {
+            offset = 0;
+            headLength = 0;
+            finishPart();
+            changed = true;
+        }
+        consumed += drain(false);
+        if (changed || consumed > 0) {
+            saveCheckpoint();
+        }
+        return consumed;
+    }
+
+    /**
+     * 持续跟踪：先处理已有内容，之后在文件变化时（目录变更通知）或每隔 pollMillis 毫秒处理新增内容，
+     * 直到其他线程调用 {@link #stop()} 或当前线程被中断
+     */
+    public void follow(long pollMillis) throws IOException {
+        if (pollMillis <= 0) {
+            throw new IllegalArgumentException("轮询间隔必须大于 0");
+        }
+        Path dir = sourceFile.toPath().getParent();
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watcher = service;
+            while (!stopped) {
+                poll();
+                // 变更通知只用于及时唤醒，是否有新内容以文件大小为准，因此不区分事件类型
+                WatchKey key = service.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    Thread.sleep(BATCH_MILLIS);
+                }
+                while (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    key = service.poll();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stop() 关闭了监听
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watcher = null;
+        }
+    }
+
+    /**
+     * 请求 {@link #follow(long)} 尽快返回，可在其他线程调用
+     */
+    public void stop() {
+        stopped = true;
+        WatchService service = watcher;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响退出，follow 会在下一次轮询超时后检查停止标志
+            }
+        }
+    }
+
+    /** 已处理到的源文件偏移 */
+    public long getOffset() {
+        return offset;
+    }
+
+    /** 已生成的分片数 */
+    public int getPartCount() {
+        return part;
+    }
+
+    /**
+     * 关闭源文件与当前分片（不保存检查点，检查点在每次 {@link #poll()} 结束时已保存）
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+            tracker.finish();
+        }
+    }
+
+    // 读取检查点并恢复状态：核对源文件身份，截掉当前分片中检查点之后的内容
+    private void restore() throws IOException {
+        if (!checkpointFile.isFile()) {
+            openSource(0);
+            return;
+        }
+        Properties p = new Properties();
+        try (InputStream input = new FileInputStream(checkpointFile)) {
+            p.load(input);
+        }
+        String savedKey;
+        long savedOffset;
+        int savedHeadLength;
+        long savedHeadCrc;
+        boolean partOpen;
+        try {
+            if (!sourceFile.getPath().equals(p.getProperty("source"))) {
+                throw new IllegalArgumentException("输出目录已用于跟踪其他文件: " + p.getProperty("source"));
+            }
+            savedKey = p.getProperty("fileKey");
+            savedOffset = Long.parseLong(p.getProperty("offset"));
+            savedHeadLength = Integer.parseInt(p.getProperty("headLength"));
+            savedHeadCrc = Long.parseLong(p.getProperty("headCrc"));
+            part = Integer.parseInt(p.getProperty("part"));
+            partLines = Long.parseLong(p.getProperty("partLines"));
+            partBytes = Long.parseLong(p.getProperty("partBytes"));
+            partOpen = Boolean.parseBoolean(p.getProperty("partOpen"));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("检查点文件格式错误: " + checkpointFile.getAbsolutePath(), e);
+        }
+
+        if (partOpen) {
+            File partFile = new File(outputDir, FileSplitUtil.partName(baseName, part, extension));
+            if (!partFile.isFile() || partFile.length() < partBytes) {
+                throw new IOException("分片文件与检查点不一致（被删除或截断）: " + partFile.getAbsolutePath());
+            }
+            out = FileChannel.open(partFile.toPath(), StandardOpenOption.WRITE);
+            out.truncate(partBytes);
+            out.position(partBytes);
+            tracker.setCurrentPart(part);
+            if (isPartFull()) {
+                finishPart(); // 本次使用的上限比上次小
+            }
+        }
+
+        String currentKey = fileKeyOf(sourceFile.toPath());
+        if (savedKey != null && currentKey != null && !savedKey.equals(currentKey)) {
+            // 停止期间发生了改名轮转：找到旧文件时补齐其剩余内容
+            File rotated = findRotated(savedKey);
+            if (rotated != null && rotated.length() >= savedOffset) {
+                in = FileChannel.open(rotated.toPath(), StandardOpenOption.READ);
+                fileKey = savedKey;
+                offset = savedOffset;
+                headLength = savedHeadLength;
+                headCrc = savedHeadCrc;
+                if (!isTruncated()) {
+                    drain(true);
+                }
+                in.close();
+                in = null;
+            }
+            finishPart();
+            openSource(0);
+            return;
+        }
+        openSource(savedOffset);
+        headLength = savedHeadLength;
+        headCrc = savedHeadCrc;
+        if (isTruncated()) {
+            offset = 0;
+            headLength = 0;
+            finishPart();
+        }
+    }
+
+    private void openSource(long position) throws IOException {
+        in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+        fileKey = fileKeyOf(sourceFile.toPath());
+        offset = position;
+        headLength = 0;
+        headCrc = 0;
+    }
+
+    // 文件比已处理的位置短，或开头的内容与记录不符（截断后又写入了超过原位置的内容）
+    private boolean isTruncated() throws IOException {
+        if (in.size() < offset) {
+            return true;
+        }
+        return headLength > 0 && headCrc(headLength) != headCrc;
+    }
+
+    private long headCrc(int length) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(length);
+        while (head.hasRemaining()) {
+            if (in.read(head, head.position()) < 0) {
+                return -1;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head.array(), 0, length);
+        return crc.getValue();
+    }
+
+    /*
+     * 处理 offset 之后的内容直到文件当前末尾；toEnd 为 false 时末尾不完整的一行留待下次，
+     * 为 true 时（文件已轮转，不会再写入）一并处理
+     */
+    private long drain(boolean toEnd) throws IOException {
+        long start = offset;
+        long size = in.size();
+        while (offset < size) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - offset));
+            while (buffer.hasRemaining() && in.read(buffer, offset + buffer.position()) >= 0) {
+                // 读满缓冲区
+            }
+            int n = buffer.position();
+            if (n == 0) {
+                break;
+            }
+            int last = LineScanner.lastNewline(buffer, 0, n);
+            if (last >= 0) {
+                writeLines(0, last + 1);
+                offset += last + 1;
+            } else if (offset + n < size) {
+                // 单行超过缓冲区：找到行尾后整行拷贝
+                long end = lineEnd(offset + n, size);
+                if (end < 0 && !toEnd) {
+                    break;
+                }
+                copyLine(offset, end < 0 ? size : end);
+                offset = end < 0 ? size : end;
+            } else if (toEnd) {
+                writeLines(0, n);
+                offset += n;
+            } else {
+                break;
+            }
+            updateHead();
+        }
+        tracker.add(offset - start);
+        return offset - start;
+    }
+
+    // 从 from 开始查找换行符，返回其后一个字节的位置，找不到时返回 -1
+    private long lineEnd(long from, long size) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(64 * 1024);
+        for (long pos = from; pos < size; ) {
+            scan.clear();
+            int n = in.read(scan, pos);
+            if (n <= 0) {
+                break;
+            }
+            long found = LineScanner.scan(scan, 0, n, 1);
+            if (found >= 0) {
+                return pos + found + 1;
+            }
+            pos += n;
+        }
+        return -1;
+    }
+
+    // 把缓冲区中 [from, to) 的若干行写入分片，按行数与字节上限在行边界处滚动
+    private void writeLines(int from, int to) throws IOException {
+        int pos = from;
+        while (pos < to) {
+            if (out == null) {
+                newPart();
+            }
+            int end = to;
+            if (maxLines > 0) {
+                long found = LineScanner.scan(buffer, pos, end, maxLines - partLines);
+                if (found >= 0) {
+                    end = (int) found + 1;
+                }
+            }
+            if (maxBytes > 0 && end - pos > maxBytes - partBytes) {
+                int last = LineScanner.lastNewline(buffer, pos, pos + (int) (maxBytes - partBytes));
+                if (last >= 0) {
+                    end = last + 1;
+                } else if (partBytes > 0) {
+                    finishPart();
+                    continue;
+                } else {
+                    // 单行超过字节上限，单独成为一个分片
+                    long found = LineScanner.scan(buffer, pos, end, 1);
+                    if (found >= 0) {
+                        end = (int) found + 1;
+                    }
+                }
+            }
+            long lines = LineScanner.countNewlines(buffer, pos, end);
+            if (buffer.get(end - 1) != '\n') {
+                lines++; // 轮转前末尾不完整的一行
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.limit(end).position(pos);
+            while (view.hasRemaining()) {
+                out.write(view);
+            }
+            partLines += lines;
+            partBytes += end - pos;
+            pos = end;
+            if (isPartFull()) {
+                finishPart();
+            }
+        }
+    }
+
+    // 拷贝源文件中的一整行（超过缓冲区的长行）
+    private void copyLine(long start, long end) throws IOException {
+        long length = end - start;
+        if (out != null && maxBytes > 0 && partBytes + length > maxBytes) {
+            finishPart();
+        }
+        if (out == null) {
+            newPart();
+        }
+        for (long copied = 0; copied < length; ) {
+            long n = in.transferTo(start + copied, length - copied, out);
+            if (n <= 0) {
+                throw new IOException("源文件在读取过程中被截断: " + sourceFile.getAbsolutePath());
+            }
+            copied += n;
+        }
+        partLines++;
+        partBytes += length;
+        if (isPartFull()) {
+            finishPart();
+        }
+    }
+
+    private boolean isPartFull() {
+        return (maxLines > 0 && partLines >= maxLines) || (maxBytes > 0 && partBytes >= maxBytes);
+    }
+
+    private void newPart() throws IOException {
+        part++;
+        out = FileSplitUtil.openPartChannel(new File(outputDir, FileSplitUtil.partName(baseName, part, extension)));
+        partLines = 0;
+        partBytes = 0;
+        tracker.setCurrentPart(part);
+    }
+
+    // 结束当前分片，下一段数据写入新分片；刷盘后再关闭，保证检查点记录的已完成分片确实完整
+    private void finishPart() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.force(false);
+        } finally {
+            out.close();
+            out = null;
+        }
+    }
+
+    // 文件开头的摘要只覆盖已处理的字节，最多 HEAD_SIZE 字节
+    private void updateHead() throws IOException {
+        if (headLength < HEAD_SIZE && offset > headLength) {
+            headLength = (int) Math.min(offset, HEAD_SIZE);
+            headCrc = headCrc(headLength);
+        }
+    }
+
+    // 先刷盘当前分片再写检查点，检查点记录的内容不会多于分片中实际落盘的内容
+    private void saveCheckpoint() throws IOException {
+        if (out != null) {
+            out.force(false);
+        }
+        Properties p = new Properties();
+        p.setProperty("source", sourceFile.getPath());
+        if (fileKey != null) {
+            p.setProperty("fileKey", fileKey);
+        }
+        p.setProperty("offset", Long.toString(offset));
+        p.setProperty("headLength", Integer.toString(headLength));
+        p.setProperty("headCrc", Long.toString(headCrc));
+        p.setProperty("part", Integer.toString(part));
+        p.setProperty("partLines", Long.toString(partLines));
+        p.setProperty("partBytes", Long.toString(partBytes));
+        p.setProperty("partOpen", Boolean.toString(out != null));
+
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream output = Channels.newOutputStream(channel)) {
+            p.store(output, "LogFollower checkpoint");
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 在源文件所在目录中按文件标识查找改名后的旧文件
+    private File findRotated(String key) throws IOException {
+        File[] candidates = sourceFile.getParentFile().listFiles(
+                f -> f.isFile() && f.getName().startsWith(baseName) && !f.equals(sourceFile));
+        if (candidates == null) {
+            return null;
+        }
+        for (File f : candidates) {
+            if (key.equals(fileKeyOf(f.toPath())) && !GzipUtil.isGzip(f)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    // 文件标识（如 Linux 上的设备号与 inode），文件不存在或平台不提供时为 null
+    private static String fileKeyOf(Path path) throws IOException {
+        try {
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            return key != null ? key.toString() : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
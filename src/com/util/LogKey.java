@@ -0,0 +1,162 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 从一行日志的原始字节中提取分区键（租户 ID、请求 ID、线程名等），供按键哈希分区使用。
+ * 提取直接在字节上进行，不解码为字符串；行尾的 "\r\n" / "\n" 不属于行内容。
+ * 同一个键的字节总是得到同一个哈希值（FNV-1a），与运行次数、源文件无关。非线程安全。
+ */
+public abstract class LogKey {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    LogKey() {
+    }
+
+    /**
+     * 按空白（连续的空格、制表符）分隔的第 index 个字段（从 0 开始）作为键
+     */
+    public static LogKey field(int index) {
+        return field(index, -1);
+    }
+
+    /**
+     * 按单字节分隔符分隔的第 index 个字段（从 0 开始）作为键，相邻分隔符之间为空字段
+     * @param delimiter 分隔符，必须是 ASCII 字符（如 ',' '|' '\t'）
+     */
+    public static LogKey field(int index, char delimiter) {
+        if (delimiter > 0x7F) {
+            throw new IllegalArgumentException("分隔符必须是 ASCII 字符: " + delimiter);
+        }
+        return field(index, (int) delimiter);
+    }
+
+    private static LogKey field(int index, int delimiter) {
+        if (index < 0) {
+            throw new IllegalArgumentException("字段序号不能为负数: " + index);
+        }
+        return new FieldKey(index, delimiter);
+    }
+
+    /**
+     * 正则表达式第 group 组匹配到的内容作为键（group 为 0 表示整个匹配）。
+     * 正则按 ISO-8859-1 逐字节匹配原始数据，键为 ASCII 时（ID、线程名等）与按字符匹配一致
+     */
+    public static LogKey regex(String regex, int group) {
+        Pattern pattern = Pattern.compile(regex);
+        if (group < 0 || group > pattern.matcher("").groupCount()) {
+            throw new IllegalArgumentException(String.format("正则表达式没有第 %d 组: %s", group, regex));
+        }
+        return new RegexKey(pattern, group);
+    }
+
+    /**
+     * 在一行 [from, to)（不含换行符）中查找键
+     * @return 找到时返回 (键起点 << 32) | 键终点，没有键时返回 -1
+     */
+    abstract long find(ByteBuffer line, int from, int to);
+
+    /**
+     * 计算一行所属的分区（0 ~ partitions - 1），行中没有键时返回 -1。使用绝对位置读取，不改变缓冲区状态
+     * @param to 行尾（换行符的下标，或末行没有换行符时的数据末尾）
+     */
+    final int partition(ByteBuffer buffer, int from, int to, int partitions) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        long range = find(buffer, from, to);
+        if (range < 0) {
+            return -1;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = (int) (range >>> 32), end = (int) range; i < end; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * FNV_PRIME;
+        }
+        return (int) Long.remainderUnsigned(hash, partitions);
+    }
+
+    private static long range(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+
+    private static final class FieldKey extends LogKey {
+        private final int index;
+        private final int delimiter; // -1 表示按连续空白分隔
+
+        FieldKey(int index, int delimiter) {
+            this.index = index;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        long find(ByteBuffer line, int from, int to) {
+            return delimiter < 0 ? findByWhitespace(line, from, to) : findByDelimiter(line, from, to);
+        }
+
+        private long findByWhitespace(ByteBuffer line, int from, int to) {
+            int i = from;
+            for (int field = 0; ; field++) {
+                while (i < to && isBlank(line.get(i))) {
+                    i++;
+                }
+                if (i >= to) {
+                    return -1;
+                }
+                int start = i;
+                while (i < to && !isBlank(line.get(i))) {
+                    i++;
+                }
+                if (field == index) {
+                    return range(start, i);
+                }
+            }
+        }
+
+        private long findByDelimiter(ByteBuffer line, int from, int to) {
+            int start = from;
+            for (int field = 0; field < index; field++) {
+                while (start < to && line.get(start) != delimiter) {
+                    start++;
+                }
+                if (start >= to) {
+                    return -1;
+                }
+                start++;
+            }
+            int end = start;
+            while (end < to && line.get(end) != delimiter) {
+                end++;
+            }
+            return end > start ? range(start, end) : -1; // 空字段视为没有键
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+    }
+
+    private static final class RegexKey extends LogKey {
+        private final int group;
+        private final ByteSequence sequence = new ByteSequence();
+        private final Matcher matcher;
+
+        RegexKey(Pattern pattern, int group) {
+            this.group = group;
+            this.matcher = pattern.matcher(sequence);
+        }
+
+        @Override
+        long find(ByteBuffer line, int from, int to) {
+            sequence.set(line, from, to);
+            matcher.reset(sequence);
+            if (!matcher.find() || matcher.start(group) < 0 || matcher.end(group) == matcher.start(group)) {
+                return -1;
+            }
+            return range(from + matcher.start(group), from + matcher.end(group));
+        }
+    }
+}
@@ -1,20 +1,71 @@
 package com.util;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
+/**
+ * 按行分割文本文件。直接在字节层面查找换行符（'\n'）并整段拷贝，不解码为字符串：
+ * 行尾（LF / CRLF）、末行是否有换行符、文件编码均原样保留，各分片拼接后与源文件逐字节一致
+ */
 public class LogSplitUtil {
 
+    /** 按行数分割时读取源文件的直接缓冲区大小 */
+    private static final int LOG_BUFFER_SIZE = 4 * 1024 * 1024;
+    // 逐行处理时保留行的暂存大小
+    private static final int PENDING_SIZE = 256 * 1024;
+
+    /** 并行按行分割时统计换行符的分段大小范围 */
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final long MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** 查找行边界时每次读取的字节数 */
+    private static final int LINE_SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /** 按键分区时同时保持打开的分区文件数上限（每个另占 64 KB 写缓冲） */
+    private static final int MAX_OPEN_KEY_PARTS = 256;
+
     /**
      * 按行数分割文本文件（如日志）
      * @param sourceFile 源文件（必须是文本文件）
      * @param outputDir 输出目录（必须为空或不存在）
      * @param linesPerChunk 每个分片的行数（>0）
-     * @param progressCallback 进度回调（按已读行数 / 总行数）
+     * @param progressCallback 进度回调（按已读字节数 / 文件大小）
      */
     public static int splitLogFile(File sourceFile, File outputDir, int linesPerChunk, Consumer<Double> progressCallback)
             throws IOException {
+        return splitLogFile(sourceFile, outputDir, linesPerChunk,
+                new SplitOptions().progress(ProgressListener.ofFraction(progressCallback)));
+    }
+
+    /**
+     * 按行数分割文本文件，按选项选择分割方式：
+     * <ul>
+     *   <li>设置了逐行处理（{@link SplitOptions#lineProcessor}）时按写出的行数分片，源文件只顺序读取一遍</li>
+     *   <li>源文件为 gzip 时边解压边分割，分片名去掉 .gz，进度按压缩字节计；不支持多行记录，不使用行索引</li>
+     *   <li>设置了多行记录（{@link SplitOptions#recordStart}）时每片为 linesPerChunk 条记录</li>
+     *   <li>启用行索引（{@link SplitOptions#lineIndex}）时按索引直接定位分片边界</li>
+     *   <li>否则线程数不为 1 时多核并行统计行边界并并行拷贝</li>
+     * </ul>
+     * 多行记录与多核统计需要先扫描一遍再拷贝，进度总量为文件大小的 2 倍
+     * @param options 进度监听器、校验清单、线程数等（进度单位为字节）
+     */
+    public static int splitLogFile(File sourceFile, File outputDir, int linesPerChunk, SplitOptions options)
+            throws IOException {
         if (sourceFile == null || !sourceFile.isFile()) {
             throw new IllegalArgumentException("输入必须是一个有效文件");
         }
@@ -24,100 +75,1168 @@ public class LogSplitUtil {
         if (linesPerChunk <= 0) {
             throw new IllegalArgumentException("每片行数必须大于 0");
         }
+        if (options == null) {
+            options = new SplitOptions();
+        }
 
-        // 校验输出目录（与 FileSplitUtil 一致）
-        if (outputDir.exists()) {
-            if (!outputDir.isDirectory()) {
-                throw new IllegalArgumentException("输出路径存在但不是一个文件夹: " + outputDir.getAbsolutePath());
+        prepareOutputDir(outputDir);
+
+        // 进度按已读取的字节数 / 文件大小计算，只需读一遍文件
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+
+        if (options.getLineProcessor() != null) {
+            return splitLogFileProcessed(sourceFile, outputDir, linesPerChunk, 0, options, totalSize);
+        }
+        if (GzipUtil.isGzip(sourceFile)) {
+            if (options.getRecordStart() != null) {
+                throw new IllegalArgumentException("gzip 输入不支持按多行记录分割");
             }
-//            File[] files = outputDir.listFiles();
-//            if (files != null && files.length > 0) {
-//                throw new IllegalArgumentException("输出目录非空，请指定空文件夹:\n" + outputDir.getAbsolutePath());
-//            }
-        } else {
-            if (!outputDir.mkdirs()) {
-                throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
+            // 进度按已读取的压缩字节数计算；线程数用于并行解压 BGZF 成员
+            ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+            try (ReadableByteChannel in = GzipUtil.openInput(sourceFile,
+                    FileSplitUtil.resolveWorkers(options.getWorkers()), tracker::add)) {
+                return splitLines(in, GzipUtil.stripSuffix(sourceFile.getName()), outputDir, linesPerChunk,
+                        options, tracker, n -> { });
+            }
+        }
+
+        if (options.getRecordStart() != null) {
+            ProgressTracker tracker = new ProgressTracker(2 * totalSize, options.getProgressListener());
+            long[] offsets;
+            try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+                offsets = recordCountBoundaries(
+                        new RecordScanner(in, totalSize, options.getRecordStart(), tracker), linesPerChunk);
+            }
+            return FileSplitUtil.splitRanges(sourceFile, outputDir, offsets, options, tracker);
+        }
+        if (options.isLineIndexEnabled()) {
+            return FileSplitUtil.splitRanges(sourceFile, outputDir, lineBoundaries(sourceFile, linesPerChunk), options);
+        }
+        if (options.getWorkers() != 1) {
+            return splitLogFileParallel(sourceFile, outputDir, linesPerChunk, options, totalSize);
+        }
+
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            return splitLines(in, sourceFile.getName(), outputDir, linesPerChunk, options, tracker, tracker::add);
+        }
+    }
+
+    /*
+     * 单线程顺序按行数分割：从通道顺序读取（文件或解压流），按需新开分片，不产生空分片
+     * @param fileName 分片命名与校验清单使用的源文件名
+     * @param progress 已处理的源数据字节数回调（进度由解压流统计时传入空操作）
+     */
+    private static int splitLines(ReadableByteChannel in, String fileName, File outputDir, int linesPerChunk,
+                                  SplitOptions options, ProgressTracker tracker, LongConsumer progress)
+            throws IOException {
+        String baseName = getBaseName(fileName);
+        String extension = FileSplitUtil.partExtension(fileName, options);
+        // 校验清单针对写出的分片字节（分片拼接后的内容），偏移即之前各分片长度之和
+        ChunkDigester digester = options.isManifestEnabled()
+                ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+        List<DigestManifest.Entry> entries = new ArrayList<>();
+        ExecutorService pool = FileSplitUtil.newCompressPool(options);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        int partCounter = 0;
+        long linesInPart = 0;
+        long partOffset = 0;
+        long partLength = 0;
+        WritableByteChannel out = null;
+        try {
+            int n;
+            while ((n = fill(in, buffer)) > 0) {
+                int pos = 0;
+                while (pos < n) {
+                    // 有数据要写时才新开分片，文件恰好在分片边界结束时不会产生空分片
+                    if (out == null) {
+                        partCounter++;
+                        out = FileSplitUtil.openPartOutput(
+                                new File(outputDir, FileSplitUtil.partName(baseName, partCounter, extension)),
+                                options, pool);
+                        tracker.setCurrentPart(partCounter);
+                        linesInPart = 0;
+                        partLength = 0;
+                    }
+
+                    // 在缓冲区剩余部分中找本分片还差的最后一个换行符
+                    long found = LineScanner.scan(buffer, pos, n, linesPerChunk - linesInPart);
+                    int end;
+                    if (found >= 0) {
+                        end = (int) found + 1;
+                    } else {
+                        end = n;
+                        linesInPart += -1 - found;
+                    }
+                    writeRange(out, buffer, pos, end, digester);
+                    progress.accept(end - pos);
+                    partLength += end - pos;
+                    pos = end;
+
+                    if (found >= 0) {
+                        out.close();
+                        out = null;
+                        if (digester != null) {
+                            entries.add(digester.finishPart(
+                                    FileSplitUtil.partName(baseName, partCounter, extension), partOffset));
+                        }
+                        partOffset += partLength;
+                    }
+                }
+                buffer.clear();
+            }
+
+            // 最后一个分片行数不足（或末行没有换行符）
+            if (out != null) {
+                out.close();
+                out = null;
+                if (digester != null) {
+                    entries.add(digester.finishPart(
+                            FileSplitUtil.partName(baseName, partCounter, extension), partOffset));
+                }
+            }
+        } finally {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+        if (digester != null) {
+            DigestManifest.of(fileName, entries, digester.finishFileSha256())
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+
+        return partCounter;
+    }
+
+    /*
+     * 逐行过滤与改写后分割：源文件（或 gzip 解压流）只顺序读取一遍，行数与字节上限按写出的内容计算
+     */
+    private static int splitLogFileProcessed(File sourceFile, File outputDir, int maxLines, long maxBytes,
+                                             SplitOptions options, long totalSize) throws IOException {
+        if (options.getRecordStart() != null) {
+            throw new IllegalArgumentException("逐行过滤与改写不支持按多行记录分割");
+        }
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        if (GzipUtil.isGzip(sourceFile)) {
+            try (ReadableByteChannel in = GzipUtil.openInput(sourceFile,
+                    FileSplitUtil.resolveWorkers(options.getWorkers()), tracker::add)) {
+                return processLines(in, GzipUtil.stripSuffix(sourceFile.getName()), outputDir, maxLines, maxBytes,
+                        options, tracker, n -> { });
+            }
+        }
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            return processLines(in, sourceFile.getName(), outputDir, maxLines, maxBytes, options, tracker,
+                    tracker::add);
+        }
+    }
+
+    /*
+     * 逐行交给 LineProcessor，保留的行写入分片；缓冲区容不下一整行时扩容，保证每一行都完整地经过过滤与改写
+     */
+    private static int processLines(ReadableByteChannel in, String fileName, File outputDir, int maxLines,
+                                    long maxBytes, SplitOptions options, ProgressTracker tracker,
+                                    LongConsumer progress) throws IOException {
+        LineProcessor processor = options.getLineProcessor();
+        ByteBuffer buffer = ByteBuffer.allocate(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ProcessedParts parts = new ProcessedParts(fileName, outputDir, maxLines, maxBytes, options, tracker);
+        try {
+            boolean eof = false;
+            while (!eof) {
+                eof = fill(in, buffer) < buffer.capacity();
+                int n = buffer.position();
+                int pos = 0;
+                while (pos < n) {
+                    long found = LineScanner.scan(buffer, pos, n, 1);
+                    if (found < 0 && !eof) {
+                        break; // 行不完整，连同后续数据一起重新处理
+                    }
+                    int end = found >= 0 ? (int) found + 1 : n;
+                    int contentEnd = found >= 0 ? (int) found : n;
+                    if (contentEnd > pos && buffer.get(contentEnd - 1) == '\r') {
+                        contentEnd--;
+                    }
+                    int result = processor.process(buffer, pos, contentEnd);
+                    if (result == LineProcessor.KEPT) {
+                        parts.keep(buffer, pos, end);
+                    } else if (result == LineProcessor.MODIFIED) {
+                        parts.keepModified(processor.output(), buffer, contentEnd, end);
+                    }
+                    pos = end;
+                }
+                progress.accept(pos);
+                if (pos == 0 && n == buffer.capacity()) {
+                    // 一整行超过缓冲区：扩容后继续读取
+                    buffer.flip();
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN).put(buffer);
+                } else {
+                    buffer.limit(n).position(pos);
+                    buffer.compact();
+                }
+            }
+            parts.close();
+        } finally {
+            parts.abort();
+        }
+        tracker.finish();
+        return parts.count;
+    }
+
+    // 从通道读满缓冲区（解压流每次只返回少量数据），返回读到的字节数，到达末尾时可能不足或为 0
+    private static int fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+            // 继续读取
+        }
+        return buffer.position();
+    }
+
+    /**
+     * 提取源文件中第 firstLine ~ lastLine 行（从 1 开始，含两端）写入输出文件，借助行索引直接定位，不从头扫描
+     * @return 写出的字节数
+     */
+    public static long extractLines(File sourceFile, long firstLine, long lastLine, File outputFile)
+            throws IOException {
+        if (outputFile == null) {
+            throw new IllegalArgumentException("输出文件不能为空");
+        }
+        try (FileChannel out = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return extractLines(sourceFile, firstLine, lastLine, out);
+        }
+    }
+
+    /**
+     * 同上，写入任意通道（如标准输出）；lastLine 超过总行数时截止到文件末尾
+     */
+    public static long extractLines(File sourceFile, long firstLine, long lastLine, WritableByteChannel out)
+            throws IOException {
+        if (firstLine < 1 || lastLine < firstLine) {
+            throw new IllegalArgumentException(String.format("行号范围无效: %d ~ %d", firstLine, lastLine));
+        }
+        rejectGzip(sourceFile);
+        long start;
+        long end;
+        try (LineIndex index = LineIndex.open(sourceFile)) {
+            if (firstLine > index.getLineCount()) {
+                throw new IllegalArgumentException(
+                        String.format("起始行 %d 超出文件总行数 %d", firstLine, index.getLineCount()));
+            }
+            start = index.offsetOfLine(firstLine - 1);
+            end = index.offsetOfLine(Math.min(lastLine, index.getLineCount()));
+        }
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            long copied = 0;
+            while (copied < end - start) {
+                long n = in.transferTo(start + copied, end - start - copied, out);
+                if (n <= 0) {
+                    throw new IOException("源文件在读取过程中被截断: " + sourceFile.getAbsolutePath());
+                }
+                copied += n;
+            }
+            return copied;
+        }
+    }
+
+    // 借助行索引计算每 linesPerChunk 行一个分片的起始偏移（末项为文件长度）
+    private static long[] lineBoundaries(File sourceFile, int linesPerChunk) throws IOException {
+        try (LineIndex index = LineIndex.open(sourceFile)) {
+            long lineCount = index.getLineCount();
+            long parts = (lineCount + linesPerChunk - 1) / linesPerChunk;
+            if (parts > Integer.MAX_VALUE - 1) {
+                throw new IllegalArgumentException("分片数量过多，请增大每片行数");
+            }
+            long[] offsets = new long[(int) parts + 1];
+            for (int k = 1; k <= parts; k++) {
+                offsets[k] = index.offsetOfLine(Math.min((long) k * linesPerChunk, lineCount));
+            }
+            return offsets;
+        }
+    }
+
+    /*
+     * 多核并行按行分割：
+     * 1. 把文件切成若干大段，各段内存映射后由 fork-join 线程并行统计换行符个数；
+     * 2. 对各段计数求前缀和，即可知道第 k * linesPerChunk 个换行符落在哪一段，只在这些段内并行定位精确偏移；
+     * 3. 按得到的字节边界并行区间拷贝（见 FileSplitUtil#splitRanges），结果与单线程分割完全一致。
+     * 进度单位为字节，统计与拷贝各计一次，总量为文件大小的 2 倍
+     */
+    private static int splitLogFileParallel(File sourceFile, File outputDir, int linesPerChunk, SplitOptions options,
+                                            long totalSize) throws IOException {
+        int threads = FileSplitUtil.resolveWorkers(options.getWorkers());
+        ProgressTracker tracker = new ProgressTracker(2 * totalSize, options.getProgressListener());
+        long[] offsets;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            offsets = findLineBoundaries(in, totalSize, linesPerChunk, pool, threads, tracker);
+        } finally {
+            pool.shutdownNow();
+        }
+        return FileSplitUtil.splitRanges(sourceFile, outputDir, offsets, options, tracker);
+    }
+
+    // 返回各分片的起始偏移（末项为文件长度），第 i 个分片从第 i * linesPerChunk 个换行符之后开始
+    private static long[] findLineBoundaries(FileChannel in, long totalSize, int linesPerChunk, ForkJoinPool pool,
+                                             int threads, ProgressTracker tracker) throws IOException {
+        // 每个线程约 4 段以平衡负载，段大小限制在 [MIN_SEGMENT_SIZE, MAX_SEGMENT_SIZE]
+        long segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, totalSize / (threads * 4L)));
+        int segments = (int) ((totalSize + segmentSize - 1) / segmentSize);
+
+        // 1. 并行统计各段的换行符个数
+        long[] counts = new long[segments];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            final int segment = i;
+            tasks.add(() -> {
+                long start = segment * segmentSize;
+                int length = (int) Math.min(segmentSize, totalSize - start);
+                MappedByteBuffer buffer = mapSegment(in, start, length);
+                try {
+                    counts[segment] = LineScanner.countNewlines(buffer, 0, length);
+                } finally {
+                    MappedBufferUtil.unmap(buffer);
+                }
+                tracker.add(length);
+                return null;
+            });
+        }
+        FileSplitUtil.awaitAll(pool.invokeAll(tasks));
+
+        // 2. 前缀和：cumulative[i] 为第 i 段之前的换行符总数
+        long[] cumulative = new long[segments + 1];
+        for (int i = 0; i < segments; i++) {
+            cumulative[i + 1] = cumulative[i] + counts[i];
+        }
+        long boundaryCount = cumulative[segments] / linesPerChunk;
+        if (boundaryCount + 1 > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("分片数量过多，请增大每片行数");
+        }
+        long[] offsets = new long[(int) boundaryCount + 2];
+        offsets[offsets.length - 1] = totalSize;
+
+        // 3. 在包含边界的段内并行定位：第 k 个边界为第 k * linesPerChunk 个换行符之后
+        tasks.clear();
+        for (int i = 0; i < segments; i++) {
+            long firstBoundary = cumulative[i] / linesPerChunk + 1;
+            long lastBoundary = cumulative[i + 1] / linesPerChunk;
+            if (firstBoundary > lastBoundary) {
+                continue;
+            }
+            final int segment = i;
+            tasks.add(() -> {
+                long start = segment * segmentSize;
+                int length = (int) Math.min(segmentSize, totalSize - start);
+                MappedByteBuffer buffer = mapSegment(in, start, length);
+                try {
+                    int pos = 0;
+                    long seen = cumulative[segment]; // pos 之前（含本段之前）的换行符个数
+                    for (long k = firstBoundary; k <= lastBoundary; k++) {
+                        long found = LineScanner.scan(buffer, pos, length, k * linesPerChunk - seen);
+                        seen = k * linesPerChunk;
+                        pos = (int) found + 1;
+                        offsets[(int) k] = start + pos;
+                    }
+                } finally {
+                    MappedBufferUtil.unmap(buffer);
+                }
+                return null;
+            });
+        }
+        FileSplitUtil.awaitAll(pool.invokeAll(tasks));
+
+        // 文件恰好以一个分片的最后一个换行符结束时，不产生空分片
+        if (boundaryCount > 0 && offsets[(int) boundaryCount] == totalSize) {
+            return Arrays.copyOf(offsets, (int) boundaryCount + 1);
+        }
+        return offsets;
+    }
+
+    private static MappedByteBuffer mapSegment(FileChannel in, long start, int length) throws IOException {
+        MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, start, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // 写出缓冲区中 [from, to) 的字节，写完后恢复 limit 以便继续按绝对位置扫描
+    private static void writeRange(WritableByteChannel out, ByteBuffer buffer, int from, int to,
+                                   ChunkDigester digester) throws IOException {
+        int limit = buffer.limit();
+        buffer.limit(to).position(from);
+        if (digester != null) {
+            digester.update(buffer);
+        }
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.limit(limit);
+    }
+
+    /**
+     * 按字节均分为 parts 个分片，边界对齐到行尾：先定位到均分偏移，再向后找到下一个换行符，
+     * 无需统计行数。分片按原始字节拷贝，拼接后与源文件完全一致。
+     * 单行长度超过均分大小时相邻边界可能重合，此时实际分片数少于 parts。
+     * 设置了多行记录时边界取均分偏移之后的第一个记录开头
+     * @param options 拷贝引擎、线程数、进度监听器、校验清单等（进度单位为字节）
+     * @return 分割生成的文件数量，源文件为空时为 0
+     */
+    public static int splitLogFileIntoParts(File sourceFile, File outputDir, int parts, SplitOptions options)
+            throws IOException {
+        FileSplitUtil.checkSourceAndPartCount(sourceFile, parts);
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        rejectLineProcessor(options);
+        rejectGzip(sourceFile);
+        prepareOutputDir(outputDir);
+
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+        long[] targets = FileSplitUtil.balancedOffsets(totalSize, parts);
+        if (options.getRecordStart() != null) {
+            ProgressTracker tracker = new ProgressTracker(2 * totalSize, options.getProgressListener());
+            long[] offsets;
+            try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+                offsets = recordPartBoundaries(
+                        new RecordScanner(in, totalSize, options.getRecordStart(), tracker), targets);
+            }
+            return FileSplitUtil.splitRanges(sourceFile, outputDir, offsets, options, tracker);
+        }
+        long[] offsets = new long[parts + 1];
+        int count = 0;
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(LINE_SCAN_BUFFER_SIZE);
+            for (int i = 1; i < parts; i++) {
+                // 边界取 targets[i] - 1 处及之后的第一个换行符之后，保证至少不早于均分位置
+                long boundary = nextLineStart(in, Math.max(targets[i] - 1, offsets[count]), totalSize, buffer);
+                if (boundary > offsets[count] && boundary < totalSize) {
+                    offsets[++count] = boundary;
+                }
+            }
+        }
+        offsets[++count] = totalSize;
+        return FileSplitUtil.splitRanges(sourceFile, outputDir, Arrays.copyOf(offsets, count + 1), options);
+    }
+
+    // 从 from 处开始查找换行符，返回其后一个字节的位置；找不到时返回文件末尾
+    private static long nextLineStart(FileChannel in, long from, long totalSize, ByteBuffer buffer)
+            throws IOException {
+        long pos = from;
+        while (pos < totalSize) {
+            buffer.clear();
+            int n = in.read(buffer, pos);
+            if (n <= 0) {
+                break;
+            }
+            long found = LineScanner.scan(buffer, 0, n, 1);
+            if (found >= 0) {
+                return pos + found + 1;
+            }
+            pos += n;
+        }
+        return totalSize;
+    }
+
+    /**
+     * 按字节上限分割日志：每个分片尽量装满 maxBytes 字节，并总在最后一个完整行之后结束，不会把一行切成两半。
+     * 可同时限制每片行数，两个上限先到者为准。边界只需在每片末尾附近向前查找换行符，
+     * 不限行数时几乎不必读取分片中间的数据。单行长度超过 maxBytes 时该行单独成为一个（超出上限的）分片。
+     * 设置了多行记录时以记录代替行：分片只在记录开头结束，行数上限改为记录条数上限
+     * @param maxBytes 每个分片的最大字节数（>0）
+     * @param maxLines 每个分片的最大行数（或记录条数），0 表示不限制
+     * @param options 拷贝引擎、线程数、进度监听器、校验清单、压缩等（进度单位为字节；
+     *                限制行数时需顺序统计换行符，进度总量为文件大小的 2 倍）；设置了逐行处理时按写出的内容计算上限，
+     *                此时源文件可以是 gzip
+     * @return 分割生成的文件数量，源文件为空时为 0
+     */
+    public static int splitLogFileBySize(File sourceFile, File outputDir, long maxBytes, int maxLines,
+                                         SplitOptions options) throws IOException {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("分片大小必须大于 0");
+        }
+        if (maxLines < 0) {
+            throw new IllegalArgumentException("每片行数不能为负数");
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        if (options.getLineProcessor() == null) {
+            rejectGzip(sourceFile);
+        }
+        prepareOutputDir(outputDir);
+
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+        if (options.getLineProcessor() != null) {
+            return splitLogFileProcessed(sourceFile, outputDir, maxLines, maxBytes, options, totalSize);
+        }
+        if (options.getRecordStart() != null) {
+            ProgressTracker tracker = new ProgressTracker(2 * totalSize, options.getProgressListener());
+            long[] offsets;
+            try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+                offsets = recordSizeBoundaries(new RecordScanner(in, totalSize, options.getRecordStart(), tracker),
+                        totalSize, maxBytes, maxLines);
+            }
+            return FileSplitUtil.splitRanges(sourceFile, outputDir, offsets, options, tracker);
+        }
+        ProgressTracker tracker = new ProgressTracker(maxLines > 0 ? 2 * totalSize : totalSize,
+                options.getProgressListener());
+        long[] offsets = new long[16];
+        int count = 0;
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer scanBuffer = maxLines > 0
+                    ? ByteBuffer.allocateDirect(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN) : null;
+            ByteBuffer seekBuffer = ByteBuffer.allocateDirect(LINE_SCAN_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long start = 0;
+            while (start < totalSize) {
+                long limit = Math.min(totalSize, start + maxBytes);
+                long end = -1;
+                if (maxLines > 0) {
+                    end = lineLimitBoundary(in, start, limit, maxLines, scanBuffer);
+                }
+                if (end < 0) {
+                    end = limit == totalSize ? totalSize : lastLineEnd(in, start, limit, seekBuffer);
+                }
+                if (end < 0) {
+                    // 从 start 开始的这一行本身就超过上限：整行单独成片
+                    end = nextLineStart(in, limit, totalSize, seekBuffer);
+                }
+                if (maxLines > 0) {
+                    tracker.add(end - start); // 统计行数的进度按分片计，重复扫描的尾部不重复计入
+                }
+                if (count + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[++count] = end;
+                start = end;
+            }
+        }
+        return FileSplitUtil.splitRanges(sourceFile, outputDir, Arrays.copyOf(offsets, count + 1), options, tracker);
+    }
+
+    // 在 [start, limit) 中查找第 maxLines 个换行符，返回其后一个字节的位置；不足 maxLines 行时返回 -1
+    private static long lineLimitBoundary(FileChannel in, long start, long limit, int maxLines, ByteBuffer buffer)
+            throws IOException {
+        long remaining = maxLines;
+        long pos = start;
+        while (pos < limit) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), limit - pos));
+            int n = in.read(buffer, pos);
+            if (n <= 0) {
+                throw new IOException("源文件在读取过程中被截断");
+            }
+            long found = LineScanner.scan(buffer, 0, n, remaining);
+            if (found >= 0) {
+                return pos + found + 1;
+            }
+            remaining -= -1 - found;
+            pos += n;
+        }
+        return -1;
+    }
+
+    // 从 limit 向前查找 [start, limit) 中最后一个换行符，返回其后一个字节的位置；区间内没有换行符时返回 -1
+    private static long lastLineEnd(FileChannel in, long start, long limit, ByteBuffer buffer) throws IOException {
+        long windowEnd = limit;
+        while (windowEnd > start) {
+            long windowStart = Math.max(start, windowEnd - buffer.capacity());
+            int length = (int) (windowEnd - windowStart);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, windowStart + buffer.position()) < 0) {
+                    throw new IOException("源文件在读取过程中被截断");
+                }
+            }
+            int found = LineScanner.lastNewline(buffer, 0, length);
+            if (found >= 0) {
+                return windowStart + found + 1;
             }
+            windowEnd = windowStart;
+        }
+        return -1;
+    }
+
+    /**
+     * 按时间窗口分割日志：根据行首时间戳（如 yyyy-MM-dd HH:mm:ss，见 {@link LogTimestamp}）把每行写入所属窗口的分片，
+     * 分片名为 {@code <文件名>_<时间标签><扩展名>}，如 app_2024-05-01_13.log。
+     * 行首没有时间戳的行（堆栈、多行消息的后续行）跟随前一个带时间戳的行，文件开头的此类行归入第一个窗口。
+     * 时间戳偶有乱序时会回到已有分片继续追加；启用压缩时已关闭的分片无法追加，会抛出 IOException。
+     * 启用校验清单时，清单按分片名（即时间）顺序记录，整文件记录对应按该顺序拼接的内容
+     * @param window 时间窗口粒度
+     * @param options 进度监听器、校验清单、压缩等（进度单位为字节）
+     * @return 生成的分片数量，源文件为空时为 0
+     */
+    public static int splitLogFileByTime(File sourceFile, File outputDir, TimeWindow window, SplitOptions options)
+            throws IOException {
+        if (sourceFile == null || !sourceFile.isFile()) {
+            throw new IllegalArgumentException("输入必须是一个有效文件");
+        }
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (window == null) {
+            throw new IllegalArgumentException("时间窗口不能为空");
+        }
+        if (options == null) {
+            options = new SplitOptions();
         }
+        rejectLineProcessor(options);
+        rejectGzip(sourceFile);
+        prepareOutputDir(outputDir);
 
-        // 获取总行数（用于进度计算）
-        long totalLines = countLines(sourceFile);
-        if (totalLines == 0) {
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
             return 0;
         }
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        ExecutorService pool = FileSplitUtil.newCompressPool(options);
+        String baseName = getBaseName(sourceFile.getName());
+        String extension = FileSplitUtil.partExtension(sourceFile.getName(), options);
+        PartWriters parts = new PartWriters(outputDir, key -> baseName + "_" + window.label(key) + extension,
+                options, pool, tracker, PartWriters.DEFAULT_MAX_OPEN);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            long bufferStart = 0;             // buffer[0] 在文件中的偏移
+            int n = readAt(in, buffer, bufferStart, totalSize);
+            int pos = 0;                      // 下一个待处理的字节
+            int runStart = 0;                 // 属于 current、尚未写出的字节起点
+            boolean atLineStart = true;
+            PartWriters.Part current = null;  // 为 null 表示还没遇到时间戳
+            long currentKey = -1;
+            while (true) {
+                boolean eof = bufferStart + n >= totalSize;
+                // 缓冲区用完，或行首剩余字节不足以解析时间戳：写出已确定的部分，从 pos 处重新读取
+                if (!eof && (pos >= n || (atLineStart && n - pos < LogTimestamp.MAX_LENGTH))) {
+                    if (current != null) {
+                        parts.write(current, buffer, runStart, pos);
+                    }
+                    tracker.add(pos);
+                    bufferStart += pos;
+                    n = readAt(in, buffer, bufferStart, totalSize);
+                    pos = 0;
+                    runStart = 0;
+                    continue;
+                }
+                if (pos >= n) {
+                    break;
+                }
+
+                if (atLineStart) {
+                    long key = LogTimestamp.windowKey(buffer, pos, n, window);
+                    if (key >= 0 && key != currentKey) {
+                        if (current != null) {
+                            parts.write(current, buffer, runStart, pos);
+                            current = parts.get(key);
+                        } else {
+                            current = parts.get(key);
+                            copyLeading(in, bufferStart + pos, parts, current); // 首个时间戳之前的行
+                        }
+                        currentKey = key;
+                        runStart = pos;
+                    }
+                }
+                long found = LineScanner.scan(buffer, pos, n, 1);
+                atLineStart = found >= 0;
+                pos = atLineStart ? (int) found + 1 : n;
+            }
+
+            if (current == null) {
+                throw new IllegalArgumentException("日志中没有找到时间戳（应位于行首，格式如 yyyy-MM-dd HH:mm:ss）");
+            }
+            parts.write(current, buffer, runStart, n);
+            tracker.add(n);
+            parts.close();
+        } finally {
+            try {
+                parts.close();
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+        if (options.isManifestEnabled()) {
+            DigestManifest.of(sourceFile.getName(), parts.manifestEntries(), null)
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+        return parts.count();
+    }
+
+    /**
+     * 按键哈希分区：从每行提取键（见 {@link LogKey}），按键的哈希值把行写入 partitions 个分区文件之一，
+     * 同一个键的所有行总在同一个分区，同一个键在不同文件、不同次运行中也落在同一个分区序号。
+     * 没有键的行（堆栈等后续行）跟随前一行，文件开头的此类行归入第一个分区。
+     * 分区文件按 {@code <文件名>_NN<扩展名>} 命名，没有数据的分区也会生成空文件。
+     * 同时打开的分区文件数有上限，分区数更多时按最近使用顺序关闭再追加打开；启用压缩时分区数不能超过该上限
+     * @param partitions 分区数（>0）
+     * @param key 键提取方式
+     * @param options 进度监听器、校验清单、压缩等（进度单位为字节）
+     * @return 分区文件数量，源文件为空时为 0
+     */
+    public static int splitLogFileByKey(File sourceFile, File outputDir, int partitions, LogKey key,
+                                        SplitOptions options) throws IOException {
+        FileSplitUtil.checkSourceAndPartCount(sourceFile, partitions);
+        if (outputDir == null) {
+            throw new IllegalArgumentException("输出目录不能为空");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("键提取方式不能为空");
+        }
+        if (options == null) {
+            options = new SplitOptions();
+        }
+        if (options.isCompressEnabled() && partitions > MAX_OPEN_KEY_PARTS) {
+            throw new IllegalArgumentException(
+                    String.format("启用压缩时分区数不能超过 %d（压缩分区关闭后无法追加）", MAX_OPEN_KEY_PARTS));
+        }
+        rejectLineProcessor(options);
+        rejectGzip(sourceFile);
+        prepareOutputDir(outputDir);
 
-        long currentLine = 0;
-        int partCounter = 1;
+        long totalSize = sourceFile.length();
+        if (totalSize == 0) {
+            return 0;
+        }
+        ProgressTracker tracker = new ProgressTracker(totalSize, options.getProgressListener());
+        ExecutorService pool = FileSplitUtil.newCompressPool(options);
+        String baseName = getBaseName(sourceFile.getName());
+        String extension = FileSplitUtil.partExtension(sourceFile.getName(), options);
+        PartWriters parts = new PartWriters(outputDir,
+                partition -> FileSplitUtil.partName(baseName, (int) partition + 1, extension),
+                options, pool, tracker, MAX_OPEN_KEY_PARTS);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(sourceFile), StandardCharsets.UTF_8))) {
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            long bufferStart = 0;             // buffer[0] 在文件中的偏移
+            int n = readAt(in, buffer, bufferStart, totalSize);
+            int pos = 0;                      // 下一个待处理的字节
+            int runStart = 0;                 // 属于 current、尚未写出的字节起点
+            boolean atLineStart = true;
+            PartWriters.Part current = parts.get(0);
+            int currentPartition = 0;
+            while (true) {
+                boolean eof = bufferStart + n >= totalSize;
+                long found = pos < n ? LineScanner.scan(buffer, pos, n, 1) : -1;
+                // 缓冲区用完，或行首开始的这一行不完整：写出已确定的部分，从 pos 处重新读取。
+                // 超过整个缓冲区的长行按其开头部分提取键，其余部分跟随写出
+                if (!eof && (pos >= n || (found < 0 && atLineStart && pos > 0))) {
+                    parts.write(current, buffer, runStart, pos);
+                    tracker.add(pos);
+                    bufferStart += pos;
+                    n = readAt(in, buffer, bufferStart, totalSize);
+                    pos = 0;
+                    runStart = 0;
+                    continue;
+                }
+                if (pos >= n) {
+                    break;
+                }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if ((currentLine % linesPerChunk) == 0) {
-                    // 需要新开一个分片文件
-                    if (currentLine > 0) {
-                        // 关闭上一个分片（通过 try-with-resources 自动处理）
+                int lineEnd = found >= 0 ? (int) found : n;
+                if (atLineStart) {
+                    int partition = key.partition(buffer, pos, lineEnd, partitions);
+                    if (partition >= 0 && partition != currentPartition) {
+                        parts.write(current, buffer, runStart, pos);
+                        current = parts.get(partition);
+                        currentPartition = partition;
+                        runStart = pos;
                     }
+                }
+                atLineStart = found >= 0;
+                pos = atLineStart ? lineEnd + 1 : n;
+            }
+            parts.write(current, buffer, runStart, n);
+            tracker.add(n);
+
+            // 没有数据的分区也生成空文件，使分区序号与文件一一对应
+            for (int partition = 0; partition < partitions; partition++) {
+                if (!parts.contains(partition)) {
+                    parts.get(partition);
+                }
+            }
+            parts.close();
+        } finally {
+            try {
+                parts.close();
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+        if (options.isManifestEnabled()) {
+            DigestManifest.of(sourceFile.getName(), parts.manifestEntries(), null)
+                    .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+        }
+        tracker.finish();
+        return parts.count();
+    }
 
-                    String baseName = getBaseName(sourceFile.getName());
-                    String extension = getExtension(sourceFile.getName());
-                    String partName = String.format("%s_%02d%s", baseName, partCounter++, extension);
-                    File partFile = new File(outputDir, partName);
+    // 把文件开头 [0, length) 的字节写入分片
+    private static void copyLeading(FileChannel in, long length, PartWriters parts, PartWriters.Part part)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(LINE_SCAN_BUFFER_SIZE);
+        long pos = 0;
+        while (pos < length) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - pos));
+            int n = in.read(buffer, pos);
+            if (n <= 0) {
+                throw new IOException("源文件在读取过程中被截断");
+            }
+            parts.write(part, buffer, 0, n);
+            pos += n;
+        }
+    }
 
-                    // 创建新分片的 BufferedWriter（需在循环外持有？不，我们换一种方式）
-                    // 改为：每片用独立 try-with-resources
-                    // → 所以重构成内部写法
-                    currentLine = writeChunk(reader, partFile, linesPerChunk, line, currentLine, totalLines, progressCallback);
+    // 从 position 处读满缓冲区（或读到文件末尾），返回读取的字节数
+    private static int readAt(FileChannel in, ByteBuffer buffer, long position, long totalSize) throws IOException {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), totalSize - position));
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("源文件在读取过程中被截断");
+            }
+        }
+        return buffer.position();
+    }
+
+    // 多行记录：每 recordsPerChunk 条记录一个分片，返回各分片的起始偏移（末项为文件长度）
+    private static long[] recordCountBoundaries(RecordScanner records, int recordsPerChunk) throws IOException {
+        long[] offsets = new long[16];
+        int count = 0;
+        long inPart = 1; // 当前分片已有的记录数，文件开头总是第一条记录
+        long start;
+        while ((start = records.next()) >= 0) {
+            if (inPart == recordsPerChunk) {
+                offsets = appendOffset(offsets, ++count, start);
+                inPart = 1;
+            } else {
+                inPart++;
+            }
+        }
+        offsets = appendOffset(offsets, ++count, records.totalSize());
+        return Arrays.copyOf(offsets, count + 1);
+    }
+
+    /*
+     * 多行记录：每片不超过 maxBytes 字节与 maxRecords 条记录（为 0 时不限），边界取上限内最后一个记录开头；
+     * 单条记录超过 maxBytes 时单独成片
+     */
+    private static long[] recordSizeBoundaries(RecordScanner records, long totalSize, long maxBytes, int maxRecords)
+            throws IOException {
+        long[] offsets = new long[16];
+        int count = 0;
+        long partStart = 0;
+        long lastFit = -1;   // 当前分片内、上限以内的最后一个记录开头
+        long inPart = 1;
+        while (true) {
+            long start = records.next();
+            long next = start >= 0 ? start : totalSize;
+            // 到 next 为止的内容装不下：在上限内最后一个记录开头处切分，没有则整条记录单独成片
+            while (next - partStart > maxBytes) {
+                long cut = lastFit > partStart ? lastFit : next;
+                if (cut == totalSize) {
+                    break;
+                }
+                offsets = appendOffset(offsets, ++count, cut);
+                partStart = cut;
+                lastFit = -1;
+                inPart = 1;
+                if (cut == next) {
+                    break;
+                }
+            }
+            if (start < 0) {
+                break;
+            }
+            if (start > partStart) {
+                if (maxRecords > 0 && inPart == maxRecords) {
+                    offsets = appendOffset(offsets, ++count, start);
+                    partStart = start;
+                    lastFit = -1;
+                    inPart = 1;
                 } else {
-                    // 不会发生，因为上面已处理
+                    inPart++;
+                    lastFit = start;
                 }
             }
         }
+        offsets = appendOffset(offsets, ++count, totalSize);
+        return Arrays.copyOf(offsets, count + 1);
+    }
+
+    // 多行记录：第 i 个边界取 targets[i] 处及之后的第一个记录开头
+    private static long[] recordPartBoundaries(RecordScanner records, long[] targets) throws IOException {
+        int parts = targets.length - 1;
+        long[] offsets = new long[parts + 1];
+        int count = 0;
+        int i = 1;
+        long start;
+        while (i < parts && (start = records.next()) >= 0) {
+            if (start < targets[i]) {
+                continue;
+            }
+            offsets[++count] = start;
+            while (i < parts && start >= targets[i]) {
+                i++;
+            }
+        }
+        offsets[++count] = records.totalSize();
+        return Arrays.copyOf(offsets, count + 1);
+    }
 
-        return partCounter - 1;
+    private static long[] appendOffset(long[] offsets, int index, long offset) {
+        if (index >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[index] = offset;
+        return offsets;
     }
 
-    // 逐片写入
-    private static long writeChunk(BufferedReader reader, File partFile, int linesPerChunk,
-                                   String firstLine, long currentLine, long totalLines,
-                                   Consumer<Double> progressCallback) throws IOException {
-        long linesWritten = 0;
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(partFile), StandardCharsets.UTF_8))) {
+    /*
+     * 逐行处理后的分片写出：记录当前分片已写出的行数与字节数，超过上限前在行边界滚动到下一个分片；
+     * 保留的行先攒到暂存缓冲区再整块写出，丢弃的行把源数据切得很碎时也不会每段一次系统调用
+     */
+    private static final class ProcessedParts {
+        private final File outputDir;
+        private final String fileName;
+        private final String baseName;
+        private final String extension;
+        private final int maxLines;
+        private final long maxBytes;
+        private final SplitOptions options;
+        private final ProgressTracker tracker;
+        private final ChunkDigester digester;
+        private final List<DigestManifest.Entry> entries = new ArrayList<>();
+        private final ExecutorService pool;
+        private final ByteBuffer pending = ByteBuffer.allocate(PENDING_SIZE);
+        private WritableByteChannel out;
+        private int count;
+        private long partLines;
+        private long partBytes;
+        private long partOffset;
 
-            // 写入第一行（已从外层 read）
-            writer.write(firstLine);
-            writer.newLine();
-            linesWritten++;
-            currentLine++;
+        ProcessedParts(String fileName, File outputDir, int maxLines, long maxBytes, SplitOptions options,
+                       ProgressTracker tracker) {
+            this.outputDir = outputDir;
+            this.fileName = fileName;
+            this.baseName = getBaseName(fileName);
+            this.extension = FileSplitUtil.partExtension(fileName, options);
+            this.maxLines = maxLines;
+            this.maxBytes = maxBytes;
+            this.options = options;
+            this.tracker = tracker;
+            this.digester = options.isManifestEnabled()
+                    ? new ChunkDigester(options.isSha256Enabled(), options.isSha256Enabled()) : null;
+            this.pool = FileSplitUtil.newCompressPool(options);
+        }
+
+        // 未改写的一行：缓冲区中的 [from, to)（含换行符）
+        void keep(ByteBuffer buffer, int from, int to) throws IOException {
+            beforeLine(to - from);
+            append(buffer, from, to);
+            afterLine(to - from);
+        }
 
-            // 写入后续行，直到达到 linesPerChunk 或 EOF
-            String line;
-            while (linesWritten < linesPerChunk && (line = reader.readLine()) != null) {
-                writer.write(line);
-                writer.newLine();
-                linesWritten++;
-                currentLine++;
+        // 改写后的一行：内容为 content 的 [0, position)，换行符为 buffer 中的 [from, to)
+        void keepModified(ByteBuffer content, ByteBuffer buffer, int from, int to) throws IOException {
+            int length = content.position() + to - from;
+            beforeLine(length);
+            append(content, 0, content.position());
+            append(buffer, from, to);
+            afterLine(length);
+        }
 
-                if (progressCallback != null) {
-                    progressCallback.accept((double) currentLine / totalLines);
+        private void append(ByteBuffer src, int from, int to) throws IOException {
+            if (pending.remaining() < to - from) {
+                drain();
+                if (to - from > pending.capacity()) {
+                    writeRange(out, src, from, to, digester);
+                    return;
+                }
+            }
+            ByteBuffer view = src.duplicate();
+            view.limit(to).position(from);
+            pending.put(view);
+        }
+
+        // 写出暂存的数据
+        private void drain() throws IOException {
+            if (pending.position() > 0) {
+                writeRange(out, pending, 0, pending.position(), digester);
+                pending.clear();
+            }
+        }
+
+        private void beforeLine(long length) throws IOException {
+            if (out != null && maxBytes > 0 && partBytes + length > maxBytes) {
+                finishPart();
+            }
+            if (out == null) {
+                count++;
+                out = FileSplitUtil.openPartOutput(
+                        new File(outputDir, FileSplitUtil.partName(baseName, count, extension)), options, pool);
+                tracker.setCurrentPart(count);
+                partLines = 0;
+                partBytes = 0;
+            }
+        }
+
+        private void afterLine(long length) throws IOException {
+            partLines++;
+            partBytes += length;
+            if ((maxLines > 0 && partLines >= maxLines) || (maxBytes > 0 && partBytes >= maxBytes)) {
+                finishPart();
+            }
+        }
+
+        private void finishPart() throws IOException {
+            drain();
+            out.close();
+            out = null;
+            if (digester != null) {
+                entries.add(digester.finishPart(FileSplitUtil.partName(baseName, count, extension), partOffset));
+            }
+            partOffset += partBytes;
+        }
+
+        // 正常结束：关闭最后一个分片并写出校验清单
+        void close() throws IOException {
+            if (out != null) {
+                finishPart();
+            }
+            if (digester != null) {
+                DigestManifest.of(fileName, entries, digester.finishFileSha256())
+                        .write(new File(outputDir, DigestManifest.DEFAULT_FILE_NAME));
+            }
+        }
+
+        // 释放资源，可在 close 之后调用
+        void abort() throws IOException {
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
                 }
             }
         }
-        return currentLine;
     }
 
-    // 获取总行数（用于进度）
-    private static long countLines(File file) throws IOException {
-        long lines = 0;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            while (reader.readLine() != null) {
-                lines++;
+    /*
+     * 顺序扫描多行记录的起点：逐行判断行首是否开始新记录。判断时整行尽量都在缓冲区内
+     * （行不完整时从行首重新读取），超过整个缓冲区的长行只提供其开头部分。扫描进度计入 tracker
+     */
+    private static final class RecordScanner {
+        private final FileChannel in;
+        private final long totalSize;
+        private final RecordStart recordStart;
+        private final ProgressTracker tracker;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long bufferStart;
+        private int n;
+        private int pos;
+        private boolean atLineStart = true;
+        private boolean finished;
+
+        RecordScanner(FileChannel in, long totalSize, RecordStart recordStart, ProgressTracker tracker)
+                throws IOException {
+            this.in = in;
+            this.totalSize = totalSize;
+            this.recordStart = recordStart;
+            this.tracker = tracker;
+            this.n = readAt(in, buffer, 0, totalSize);
+        }
+
+        long totalSize() {
+            return totalSize;
+        }
+
+        // 返回下一条记录的起始偏移（文件开头的第一条记录除外），没有更多记录时返回 -1
+        long next() throws IOException {
+            while (!finished) {
+                boolean eof = bufferStart + n >= totalSize;
+                long found = pos < n ? LineScanner.scan(buffer, pos, n, 1) : -1;
+                if (!eof && (pos >= n || (found < 0 && atLineStart && pos > 0))) {
+                    tracker.add(pos);
+                    bufferStart += pos;
+                    n = readAt(in, buffer, bufferStart, totalSize);
+                    pos = 0;
+                    continue;
+                }
+                if (pos >= n) {
+                    tracker.add(n);
+                    finished = true;
+                    break;
+                }
+
+                int lineEnd = found >= 0 ? (int) found : n;
+                long lineStart = bufferStart + pos;
+                boolean isStart = atLineStart && lineStart > 0 && recordStart.isStart(buffer, pos, lineEnd);
+                atLineStart = found >= 0;
+                pos = atLineStart ? lineEnd + 1 : n;
+                if (isStart) {
+                    return lineStart;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // 逐行处理改变了写出的内容，只用于按行数与按字节上限这两种顺序写出的分割方式
+    private static void rejectLineProcessor(SplitOptions options) {
+        if (options.getLineProcessor() != null) {
+            throw new IllegalArgumentException("逐行过滤与改写只支持按行数或按大小分割");
+        }
+    }
+
+    // 只有按行数分割支持边解压边处理，其余方式需要随机读取源文件
+    private static void rejectGzip(File sourceFile) throws IOException {
+        if (sourceFile != null && sourceFile.isFile() && GzipUtil.isGzip(sourceFile)) {
+            throw new IllegalArgumentException("gzip 压缩的日志只支持按行数分割，请先解压: " + sourceFile.getName());
+        }
+    }
+
+    // 校验输出目录（与 FileSplitUtil 一致）
+    private static void prepareOutputDir(File outputDir) throws IOException {
+        if (outputDir.exists()) {
+            if (!outputDir.isDirectory()) {
+                throw new IllegalArgumentException("输出路径存在但不是一个文件夹: " + outputDir.getAbsolutePath());
+            }
+//            File[] files = outputDir.listFiles();
+//            if (files != null && files.length > 0) {
+//                throw new IllegalArgumentException("输出目录非空，请指定空文件夹:\n" + outputDir.getAbsolutePath());
+//            }
+        } else {
+            if (!outputDir.mkdirs()) {
+                throw new IOException("无法创建输出目录: " + outputDir.getAbsolutePath());
             }
         }
-        return lines;
     }
 
     // 工具方法
@@ -0,0 +1,75 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 从行首字节直接解析时间戳并换算为时间窗口键，不解码字符、不分配对象。
+ * 支持 yyyy-MM-dd HH:mm:ss 及其常见变体：日期分隔符为 '-' 或 '/'，日期与时间之间为空格或 'T'，
+ * 行首可带一个 '['。只解析窗口粒度需要的部分（按天时不要求有时间），秒及之后的内容不检查
+ */
+final class LogTimestamp {
+
+    /** 解析时间戳最多需要查看的行首字节数 */
+    static final int MAX_LENGTH = 17; // "[yyyy-MM-dd HH:mm"
+
+    private LogTimestamp() {
+    }
+
+    /**
+     * 解析 buffer 中从 from 开始（不超过 to）的时间戳，使用绝对位置读取
+     * @return 窗口键（见 {@link TimeWindow}），该处不是时间戳时返回 -1
+     */
+    static long windowKey(ByteBuffer buffer, int from, int to, TimeWindow window) {
+        int p = from;
+        if (p < to && buffer.get(p) == '[') {
+            p++;
+        }
+        int need = window == TimeWindow.DAY ? 10 : window == TimeWindow.HOUR ? 13 : 16;
+        if (to - p < need) {
+            return -1;
+        }
+        byte sep = buffer.get(p + 4);
+        if ((sep != '-' && sep != '/') || buffer.get(p + 7) != sep) {
+            return -1;
+        }
+        int year = digits(buffer, p, 4);
+        int month = digits(buffer, p + 5, 2);
+        int day = digits(buffer, p + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return -1;
+        }
+        long key = year * 10000L + month * 100 + day;
+        if (window == TimeWindow.DAY) {
+            return key;
+        }
+
+        byte t = buffer.get(p + 10);
+        int hour = digits(buffer, p + 11, 2);
+        if ((t != ' ' && t != 'T') || hour < 0 || hour > 23) {
+            return -1;
+        }
+        key = key * 100 + hour;
+        if (window == TimeWindow.HOUR) {
+            return key;
+        }
+
+        int minute = digits(buffer, p + 14, 2);
+        if (buffer.get(p + 13) != ':' || minute < 0 || minute > 59) {
+            return -1;
+        }
+        return key * 100 + minute;
+    }
+
+    // 解析 count 位十进制数字，含非数字时返回 -1
+    private static int digits(ByteBuffer buffer, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = buffer.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,60 @@
+package com.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * 内存映射缓冲区工具：JDK 没有公开的 unmap 接口，映射窗口只能等 GC 回收，
+ * 处理远大于地址空间预算的文件时必须主动释放，这里按 JDK 版本分别反射调用清理器。
+ */
+public class MappedBufferUtil {
+
+    // JDK 9+：sun.misc.Unsafe#invokeCleaner(ByteBuffer)
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception ignored) {
+            // JDK 8 没有 invokeCleaner，走 DirectBuffer#cleaner() 分支
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * 立即解除映射；失败时静默忽略（映射仍会在 GC 时释放）。
+     * 调用后不得再访问该缓冲区。
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method clean = cleaner.getClass().getMethod("clean");
+                    clean.setAccessible(true);
+                    clean.invoke(cleaner);
+                }
+            }
+        } catch (Exception ignored) {
+            // ignore
+        }
+    }
+}
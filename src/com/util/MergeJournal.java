@@ -0,0 +1,161 @@
+package com.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 可续传合并的进度日志：每写完一个分片（且数据已 force 落盘）追加一行记录，记录本身也立即 force。
+ * 文本格式（UTF-8，# 开头为注释，字段以 Tab 分隔）：
+ * <pre>
+ * merge  3            314572800                      （分片数与总长度，用于识别是否为同一次合并）
+ * part   data_01.bin  0          104857600  1f2e3d4c  &lt;sha256 或 -&gt;
+ * </pre>
+ * 打开时只保留与当前分片列表逐个吻合的前缀记录（被中断写了一半的末行自然被丢弃），并把日志原子地重写为该前缀
+ */
+final class MergeJournal implements Closeable {
+
+    /** 日志文件名后缀，追加在临时输出文件名之后 */
+    static final String SUFFIX = ".journal";
+
+    private static final String TYPE_MERGE = "merge";
+    private static final String TYPE_PART = "part";
+    private static final String NO_DIGEST = "-";
+
+    private final File journalFile;
+    private final String header;
+    private final List<DigestManifest.Entry> completed;
+    private FileChannel channel;
+
+    private MergeJournal(File journalFile, String header, List<DigestManifest.Entry> completed) {
+        this.journalFile = journalFile;
+        this.header = header;
+        this.completed = completed;
+    }
+
+    /**
+     * 读取已有日志（不存在时视为空），只保留与 files / lengths 逐个吻合的前缀，并以追加方式打开
+     */
+    static MergeJournal open(File journalFile, List<File> files, long[] lengths) throws IOException {
+        long total = 0;
+        for (long length : lengths) {
+            total += length;
+        }
+        String header = String.format("%s\t%d\t%d", TYPE_MERGE, files.size(), total);
+        List<DigestManifest.Entry> completed = new ArrayList<>();
+        if (journalFile.isFile()) {
+            byte[] content = Files.readAllBytes(journalFile.toPath());
+            String text = new String(content, StandardCharsets.UTF_8);
+            // 没有换行结尾的末行是写到一半时中断留下的，不予采信
+            String[] lines = text.substring(0, text.lastIndexOf('\n') + 1).split("\n");
+            boolean sameMerge = false;
+            long offset = 0;
+            for (String line : lines) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!sameMerge) {
+                    if (!line.equals(header)) {
+                        break; // 分片列表已变化，从头开始
+                    }
+                    sameMerge = true;
+                    continue;
+                }
+                DigestManifest.Entry entry = parsePart(line);
+                int index = completed.size();
+                if (entry == null || index >= files.size() || !entry.getName().equals(files.get(index).getName())
+                        || entry.getOffset() != offset || entry.getLength() != lengths[index]) {
+                    break;
+                }
+                completed.add(entry);
+                offset += entry.getLength();
+            }
+        }
+        MergeJournal journal = new MergeJournal(journalFile, header, completed);
+        journal.rewrite(completed.size());
+        return journal;
+    }
+
+    /** 已完成的分片记录（按合并顺序） */
+    List<DigestManifest.Entry> getCompleted() {
+        return Collections.unmodifiableList(completed);
+    }
+
+    /**
+     * 只保留前 count 条记录（如临时文件中最后一个分片的数据未能通过复核）
+     */
+    void retain(int count) throws IOException {
+        if (count < completed.size()) {
+            rewrite(count);
+        }
+    }
+
+    /**
+     * 追加一条已完成分片的记录并立即落盘；调用前分片数据本身应已 force
+     */
+    void append(DigestManifest.Entry entry) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap(format(entry).getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        channel.force(false);
+        completed.add(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // 把前 count 条记录写入临时文件并原子替换日志，然后以追加方式重新打开
+    private void rewrite(int count) throws IOException {
+        close();
+        completed.subList(count, completed.size()).clear();
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(out),
+                     StandardCharsets.UTF_8))) {
+            writer.write("# 合并日志：类型\t文件名\t输出偏移\t长度\tCRC32C\tSHA-256\n");
+            writer.write(header + "\n");
+            for (DigestManifest.Entry entry : completed) {
+                writer.write(format(entry));
+            }
+            writer.flush();
+            out.force(false);
+        }
+        Files.move(tmp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String format(DigestManifest.Entry entry) {
+        return String.format("%s\t%s\t%d\t%d\t%08x\t%s\n", TYPE_PART, entry.getName(), entry.getOffset(),
+                entry.getLength(), entry.getCrc32c(), entry.getSha256() != null ? entry.getSha256() : NO_DIGEST);
+    }
+
+    // 格式不对时返回 null
+    private static DigestManifest.Entry parsePart(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 6 || !TYPE_PART.equals(fields[0])) {
+            return null;
+        }
+        try {
+            return new DigestManifest.Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                    Long.parseLong(fields[4], 16), NO_DIGEST.equals(fields[5]) ? null : fields[5]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.util;
+
+/**
+ * 合并任务的可选参数，链式设置，未设置的项使用默认值
+ */
+public class MergeOptions {
+
+    private CopyEngine engine = CopyEngine.CHANNEL;
+    private ProgressListener progressListener;
+    private int workers;
+    private boolean parallel;
+    private DigestManifest manifest;
+    private boolean resumable;
+
+    /**
+     * 拷贝引擎（默认 CHANNEL，按 64 MB 跨度 transferTo 追加到输出文件，逐跨度报告进度）
+     */
+    public MergeOptions engine(CopyEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("拷贝引擎不能为空");
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * 进度监听器（可为 null）
+     */
+    public MergeOptions progress(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * 并行线程数（默认 0 表示按 CPU 核数），用于块压缩分片的并行解压与并行合并
+     */
+    public MergeOptions workers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("线程数不能为负数");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * 并行合并：按各分片长度的前缀和确定其在输出中的位置，先把临时文件 &lt;文件名&gt;.merging 设为总长度，
+     * 再由 {@link #workers(int)} 个线程同时按位置写入（大分片切段，块压缩分片在各线程内解压），
+     * 全部成功后改名为输出文件，失败时删除临时文件。
+     * 适合条带化存储或 SSD 上合并大量分片；线程数为 1 时与顺序合并相同
+     */
+    public MergeOptions parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 合并时按校验清单（分割时生成的 {@link DigestManifest}，可为 null）边拷贝边校验：
+     * 开始前核对分片名称、顺序与长度，拷贝时顺带计算每片 CRC32C / SHA-256 并在该片结束时比对，
+     * 整文件摘要在同一遍中得到。任一分片不符立即失败并删除不完整的输出文件（可续传合并时保留临时文件）。
+     * 校验时数据经堆内缓冲区按顺序拷贝，不使用拷贝引擎与并行合并
+     */
+    public MergeOptions verify(DigestManifest manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+
+    /**
+     * 可续传合并：先写入输出文件旁的临时文件 &lt;文件名&gt;.merging，每完成一个分片先把数据落盘，
+     * 再在 &lt;文件名&gt;.merging.journal 中追加该分片的偏移与 CRC32C 并落盘；中断后以相同的分片列表重新合并时，
+     * 从最后一个已落盘且复核通过的分片之后继续，全部完成后原子改名为最终文件名。
+     * 此时按顺序合并，数据经堆内缓冲区拷贝以计算摘要；同时设置校验清单时，续传跳过的分片不再计算整文件 SHA-256
+     */
+    public MergeOptions resumable(boolean resumable) {
+        this.resumable = resumable;
+        return this;
+    }
+
+    public CopyEngine getEngine() {
+        return engine;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public DigestManifest getVerifyManifest() {
+        return manifest;
+    }
+
+    public boolean isResumable() {
+        return resumable;
+    }
+}
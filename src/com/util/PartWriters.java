@@ -0,0 +1,197 @@
+package com.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongFunction;
+
+/**
+ * 按键路由写出的一组分片（按时间窗口、按哈希分区等）：数据不按分片顺序到达时使用。
+ * 同时打开的分片数有上限，按最近使用顺序换出，换出的分片再次写入时以追加方式重新打开，
+ * 因此分片数可以超过文件描述符上限。每个打开的分片带一个写缓冲区，小段数据先攒批再写出。
+ * 启用压缩时分片关闭后无法追加，再次写入已换出的分片会抛出 IOException。非线程安全。
+ */
+final class PartWriters {
+
+    /** 默认同时打开的分片数上限 */
+    static final int DEFAULT_MAX_OPEN = 64;
+
+    /** 每个打开分片的写缓冲区大小，超过该长度的数据直接写出 */
+    private static final int PART_BUFFER_SIZE = 64 * 1024;
+
+    private final File outputDir;
+    private final LongFunction<String> nameOf;
+    private final SplitOptions options;
+    private final ExecutorService pool;
+    private final ProgressTracker tracker;
+    private final int maxOpen;
+    private final Map<Long, Part> all = new HashMap<>();
+    private final LinkedHashMap<Long, Part> open = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param nameOf 由键生成分片文件名
+     * @param pool 压缩线程池，未启用压缩时为 null
+     * @param tracker 新建分片时更新其当前分片序号
+     */
+    PartWriters(File outputDir, LongFunction<String> nameOf, SplitOptions options, ExecutorService pool,
+                ProgressTracker tracker, int maxOpen) {
+        this.outputDir = outputDir;
+        this.nameOf = nameOf;
+        this.options = options;
+        this.pool = pool;
+        this.tracker = tracker;
+        this.maxOpen = Math.max(1, maxOpen);
+    }
+
+    /**
+     * 取得键对应的分片，首次使用时新建（已存在的同名文件被截断），已换出时重新打开
+     */
+    Part get(long key) throws IOException {
+        Part part = all.get(key);
+        if (part != null && part.out != null) {
+            open.get(key); // 更新最近使用顺序
+            return part;
+        }
+        if (part == null) {
+            part = new Part(new File(outputDir, nameOf.apply(key)),
+                    options.isManifestEnabled() ? new ChunkDigester(options.isSha256Enabled(), false) : null);
+            part.out = FileSplitUtil.openPartOutput(part.file, options, pool);
+            all.put(key, part);
+            tracker.setCurrentPart(all.size());
+        } else if (options.isCompressEnabled()) {
+            throw new IOException("压缩分片关闭后无法追加: " + part.file.getName()
+                    + "（同时写入的分片过多或数据乱序，可关闭压缩后重试）");
+        } else {
+            part.out = FileChannel.open(part.file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        part.buffer = ByteBuffer.allocate(PART_BUFFER_SIZE);
+        open.put(key, part);
+        if (open.size() > maxOpen) {
+            Iterator<Part> eldest = open.values().iterator();
+            Part evicted = eldest.next();
+            eldest.remove();
+            evicted.close();
+        }
+        return part;
+    }
+
+    /**
+     * 把 src 中 [from, to) 的字节写入分片（使用绝对位置，不改变 src 的状态）
+     */
+    void write(Part part, ByteBuffer src, int from, int to) throws IOException {
+        int length = to - from;
+        if (length <= 0) {
+            return;
+        }
+        ByteBuffer view = src.duplicate();
+        view.limit(to).position(from);
+        if (part.digester != null) {
+            part.digester.update(view);
+        }
+        if (length > part.buffer.remaining()) {
+            part.flush();
+        }
+        if (length >= part.buffer.capacity()) {
+            while (view.hasRemaining()) {
+                part.out.write(view);
+            }
+        } else {
+            part.buffer.put(view);
+        }
+    }
+
+    /** 键对应的分片是否已创建 */
+    boolean contains(long key) {
+        return all.containsKey(key);
+    }
+
+    /** 已创建的分片数 */
+    int count() {
+        return all.size();
+    }
+
+    /**
+     * 按键的大小顺序生成校验清单记录，偏移为按该顺序拼接时的位置；未启用校验清单时返回空列表
+     */
+    List<DigestManifest.Entry> manifestEntries() {
+        List<DigestManifest.Entry> entries = new ArrayList<>();
+        if (!options.isManifestEnabled()) {
+            return entries;
+        }
+        List<Long> keys = new ArrayList<>(all.keySet());
+        Collections.sort(keys);
+        long offset = 0;
+        for (Long key : keys) {
+            Part part = all.get(key);
+            DigestManifest.Entry entry = part.digester.finishPart(part.file.getName(), offset);
+            entries.add(entry);
+            offset += entry.getLength();
+        }
+        return entries;
+    }
+
+    /**
+     * 写出缓冲数据并关闭所有仍打开的分片，可重复调用
+     */
+    void close() throws IOException {
+        IOException error = null;
+        for (Part part : open.values()) {
+            try {
+                part.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        open.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /** 一个分片：换出后 out 与 buffer 为 null，摘要状态保留到最后 */
+    static final class Part {
+        private final File file;
+        private final ChunkDigester digester;
+        private WritableByteChannel out;
+        private ByteBuffer buffer;
+
+        private Part(File file, ChunkDigester digester) {
+            this.file = file;
+            this.digester = digester;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void close() throws IOException {
+            if (out == null) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                out.close();
+                out = null;
+                buffer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.util;
+
+/**
+ * 一次进度采样的快照（不可变）
+ */
+public final class ProgressEvent {
+
+    private final long done;
+    private final long total;
+    private final int currentPart;
+    private final double unitsPerSecond;
+    private final long etaMillis;
+    private final boolean finished;
+
+    ProgressEvent(long done, long total, int currentPart, double unitsPerSecond, long etaMillis, boolean finished) {
+        this.done = done;
+        this.total = total;
+        this.currentPart = currentPart;
+        this.unitsPerSecond = unitsPerSecond;
+        this.etaMillis = etaMillis;
+        this.finished = finished;
+    }
+
+    /** 已完成量（字节数或行数，取决于任务类型） */
+    public long getDone() {
+        return done;
+    }
+
+    /** 总量，未知时为 -1 */
+    public long getTotal() {
+        return total;
+    }
+
+    /** 当前正在写入的分片编号（从 1 开始，未开始时为 0） */
+    public int getCurrentPart() {
+        return currentPart;
+    }
+
+    /** 自任务开始以来的平均吞吐（单位/秒） */
+    public double getUnitsPerSecond() {
+        return unitsPerSecond;
+    }
+
+    /** 预计剩余毫秒数，总量未知或尚无法估计时为 -1 */
+    public long getEtaMillis() {
+        return etaMillis;
+    }
+
+    /** 是否为任务结束时的最后一次事件 */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** 完成比例（0.0 ~ 1.0），总量未知时为 -1 */
+    public double getFraction() {
+        if (total <= 0) {
+            return total == 0 ? 1.0 : -1;
+        }
+        return Math.min(1.0, (double) done / total);
+    }
+}
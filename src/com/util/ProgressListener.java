@@ -0,0 +1,22 @@
+package com.util;
+
+import java.util.function.Consumer;
+
+/**
+ * 进度监听器：接收由 {@link ProgressTracker} 节流后的进度事件
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    void onProgress(ProgressEvent event);
+
+    /**
+     * 适配旧的 Consumer&lt;Double&gt; 回调（0.0 ~ 1.0），consumer 为 null 时返回 null
+     */
+    static ProgressListener ofFraction(Consumer<Double> consumer) {
+        if (consumer == null) {
+            return null;
+        }
+        return event -> consumer.accept(event.getFraction());
+    }
+}
@@ -0,0 +1,105 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进度计数器：热循环中只做一次 long 累加和一次比较，不装箱、不回调；
+ * 计数每跨过一个步长才采样一次，且两次事件之间至少间隔 {@link #DEFAULT_INTERVAL_MILLIS} 毫秒，
+ * 采样时才构造 {@link ProgressEvent} 交给监听器。可被多个工作线程同时累加。
+ */
+public class ProgressTracker {
+
+    /** 两次事件之间的最小间隔 */
+    public static final long DEFAULT_INTERVAL_MILLIS = 100;
+
+    /** 总量已知时的采样步长（总量的 0.5%） */
+    public static final double DEFAULT_PERCENT_STEP = 0.005;
+
+    /** 总量未知时的采样步长 */
+    public static final long DEFAULT_UNKNOWN_STEP = 4L * 1024 * 1024;
+
+    private final long total;
+    private final ProgressListener listener;
+    private final long step;
+    private final long intervalNanos;
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong done = new AtomicLong();
+    private volatile long nextSampleAt;
+    private volatile int currentPart;
+
+    // 以下字段仅在 sample() 的同步块中访问
+    private long lastEmitNanos;
+
+    /**
+     * @param total 总量（字节数或行数），未知时传 -1
+     * @param listener 监听器，可为 null（此时只计数不上报）
+     */
+    public ProgressTracker(long total, ProgressListener listener) {
+        this(total, listener, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public ProgressTracker(long total, ProgressListener listener, long intervalMillis) {
+        this.total = total;
+        this.listener = listener;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+        this.step = total > 0 ? Math.max(1, (long) (total * DEFAULT_PERCENT_STEP)) : DEFAULT_UNKNOWN_STEP;
+        this.nextSampleAt = listener == null ? Long.MAX_VALUE : step;
+        this.lastEmitNanos = startNanos - intervalNanos;
+    }
+
+    /**
+     * 累加已完成量（热路径）
+     */
+    public void add(long delta) {
+        long d = done.addAndGet(delta);
+        if (d >= nextSampleAt) {
+            sample(d, false);
+        }
+    }
+
+    /**
+     * 记录当前正在写入的分片编号（从 1 开始）
+     */
+    public void setCurrentPart(int part) {
+        this.currentPart = part;
+    }
+
+    public long getDone() {
+        return done.get();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 任务结束时调用，无视节流发出最后一次事件
+     */
+    public void finish() {
+        sample(done.get(), true);
+    }
+
+    private synchronized void sample(long d, boolean finished) {
+        if (listener == null || (!finished && d < nextSampleAt)) {
+            return; // 其他线程已经完成了本次采样
+        }
+        nextSampleAt = d + step;
+        long now = System.nanoTime();
+        if (!finished && now - lastEmitNanos < intervalNanos) {
+            return;
+        }
+        lastEmitNanos = now;
+
+        double seconds = (now - startNanos) / 1e9;
+        double rate = seconds > 0 ? d / seconds : 0;
+        long eta = -1;
+        if (finished) {
+            eta = 0;
+        } else if (total > 0 && rate > 0) {
+            eta = (long) ((total - d) / rate * 1000);
+        }
+        listener.onProgress(new ProgressEvent(d, total, currentPart, rate, eta, finished));
+    }
+}
@@ -0,0 +1,98 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 多行记录的起始行判断：满足条件的行开始一条新记录，其后不满足条件的行（堆栈、多行 JSON 等）都属于这条记录。
+ * 判断直接在行首字节上进行，不解码、不分配对象；行尾的 "\r\n" / "\n" 不属于行内容。非线程安全。
+ * 见 {@link SplitOptions#recordStart(RecordStart)}
+ */
+public abstract class RecordStart {
+
+    private static final byte[] AT = "at ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CAUSED_BY = "Caused by:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUPPRESSED = "Suppressed:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ELLIPSIS = "...".getBytes(StandardCharsets.US_ASCII);
+
+    RecordStart() {
+    }
+
+    /**
+     * 行首为时间戳（yyyy-MM-dd HH:mm 开头的常见格式，见 {@link LogTimestamp}）的行开始新记录
+     */
+    public static RecordStart timestamp() {
+        return new RecordStart() {
+            @Override
+            boolean test(ByteBuffer line, int from, int to) {
+                return LogTimestamp.windowKey(line, from, to, TimeWindow.MINUTE) >= 0;
+            }
+        };
+    }
+
+    /**
+     * 不以空白开头的行开始新记录；Java 堆栈中的 "at ..."、"Caused by: ..."、"Suppressed: ..."、"... N more"
+     * 即使顶格书写也视为上一条记录的后续行
+     */
+    public static RecordStart notIndented() {
+        return new RecordStart() {
+            @Override
+            boolean test(ByteBuffer line, int from, int to) {
+                if (from >= to) {
+                    return false; // 空行属于上一条记录
+                }
+                byte first = line.get(from);
+                return first != ' ' && first != '\t'
+                        && !startsWith(line, from, to, AT) && !startsWith(line, from, to, CAUSED_BY)
+                        && !startsWith(line, from, to, SUPPRESSED) && !startsWith(line, from, to, ELLIPSIS);
+            }
+        };
+    }
+
+    /**
+     * 行首与正则表达式匹配（{@link Matcher#lookingAt()}）的行开始新记录。
+     * 正则按 ISO-8859-1 逐字节匹配原始数据，如 {@code \d{4}-\d{2}-\d{2}} 或 {@code \{}
+     */
+    public static RecordStart regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        ByteSequence sequence = new ByteSequence();
+        Matcher matcher = pattern.matcher(sequence);
+        return new RecordStart() {
+            @Override
+            boolean test(ByteBuffer line, int from, int to) {
+                sequence.set(line, from, to);
+                return matcher.reset(sequence).lookingAt();
+            }
+        };
+    }
+
+    /**
+     * 判断 [from, to) 这一行是否开始新记录，使用绝对位置读取，不改变缓冲区状态
+     * @param to 行尾（已去掉换行符）；行超过缓冲区时只提供行首部分
+     */
+    abstract boolean test(ByteBuffer line, int from, int to);
+
+    /**
+     * 同 {@link #test}，to 可以包含行尾的 '\r'
+     */
+    final boolean isStart(ByteBuffer line, int from, int to) {
+        if (to > from && line.get(to - 1) == '\r') {
+            to--;
+        }
+        return test(line, from, to);
+    }
+
+    private static boolean startsWith(ByteBuffer line, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package com.util;
+
+import java.util.zip.Deflater;
+
+/**
+ * 分割任务的可选参数，链式设置，未设置的项使用默认值
+ */
+public class SplitOptions {
+
+    private CopyEngine engine = CopyEngine.CHANNEL;
+    private int workers = 1;
+    private ProgressListener progressListener;
+    private boolean manifest;
+    private boolean sha256;
+    private boolean compress;
+    private boolean gzip;
+    private int compressLevel = Deflater.DEFAULT_COMPRESSION;
+    private int compressBlockSize = BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE;
+    private boolean lineIndex;
+    private RecordStart recordStart;
+    private LineProcessor lineProcessor;
+
+    /**
+     * 拷贝引擎（默认 CHANNEL），仅对按字节分割生效
+     */
+    public SplitOptions engine(CopyEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("拷贝引擎不能为空");
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * 工作线程数（默认 1 即单线程；0 表示按 CPU 核数），用于按字节分割、按行分割、块压缩，
+     * 以及按行分割 BGZF 风格的 gzip 日志时的并行解压
+     */
+    public SplitOptions workers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("线程数不能为负数");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * 进度监听器（可为 null）
+     */
+    public SplitOptions progress(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * 分割的同时为每个分片计算 CRC32C，并在输出目录写入校验清单 {@link DigestManifest#DEFAULT_FILE_NAME}
+     */
+    public SplitOptions manifest(boolean manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+
+    /**
+     * 校验清单中额外记录 SHA-256（隐含开启校验清单）
+     */
+    public SplitOptions sha256(boolean sha256) {
+        this.sha256 = sha256;
+        return this;
+    }
+
+    /**
+     * 以块压缩格式写出分片（见 {@link BlockCompressedFile}），各块在 {@link #workers(int)} 个线程上并行压缩；
+     * 合并时自动识别并解压。校验清单记录的仍是压缩前的数据
+     * @param level 压缩等级 1 ~ 9
+     */
+    public SplitOptions compress(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("压缩等级必须在 1 ~ 9 之间");
+        }
+        this.compress = true;
+        this.gzip = false;
+        this.compressLevel = level;
+        return this;
+    }
+
+    /**
+     * 以多成员 gzip 格式写出分片（文件名追加 .gz，标准 gzip / zcat 可直接解压），各成员在
+     * {@link #workers(int)} 个线程上并行压缩；成员带 BGZF 长度字段，本工具读取 gzip 输入时可并行解压。
+     * 合并（及 {@link ChunkedFileChannel} 随机读取）时按 base_NN.ext.gz 命名识别并解压，输出文件名不带 .gz
+     * @param level 压缩等级 1 ~ 9
+     */
+    public SplitOptions gzip(int level) {
+        compress(level);
+        this.gzip = true;
+        return this;
+    }
+
+    /**
+     * 块压缩的块大小（默认 {@link BlockCompressedOutputStream#DEFAULT_BLOCK_SIZE}）
+     */
+    public SplitOptions compressBlockSize(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须大于 0");
+        }
+        this.compressBlockSize = blockSize;
+        return this;
+    }
+
+    /**
+     * 按行分割时借助源文件旁的稀疏行索引（见 {@link LineIndex}）直接定位分片边界，索引不存在或已失效时先扫描建立；
+     * 同一文件以不同行数反复分割时，只有第一次需要扫描全文
+     */
+    public SplitOptions lineIndex(boolean lineIndex) {
+        this.lineIndex = lineIndex;
+        return this;
+    }
+
+    /**
+     * 按行分割日志时以多行记录为单位（可为 null，即按单行）：满足条件的行开始一条新记录，
+     * 行数上限改为计记录条数，分片边界只落在记录开头，堆栈、多行 JSON 不会被拆到两个分片。
+     * 适用于按行数、按字节上限和按份数分割；此时统计边界为单线程顺序扫描，不使用行索引
+     */
+    public SplitOptions recordStart(RecordStart recordStart) {
+        this.recordStart = recordStart;
+        return this;
+    }
+
+    /**
+     * 按行数或按字节上限分割日志时，逐行过滤与改写后再写入分片（可为 null）：
+     * 行数、字节上限按写出的内容计算，源文件（含 gzip）只顺序读取一遍；此时不使用多线程与行索引，不支持多行记录
+     */
+    public SplitOptions lineProcessor(LineProcessor lineProcessor) {
+        this.lineProcessor = lineProcessor;
+        return this;
+    }
+
+    public CopyEngine getEngine() {
+        return engine;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public boolean isManifestEnabled() {
+        return manifest || sha256;
+    }
+
+    public boolean isSha256Enabled() {
+        return sha256;
+    }
+
+    public boolean isCompressEnabled() {
+        return compress;
+    }
+
+    public boolean isGzipEnabled() {
+        return compress && gzip;
+    }
+
+    public int getCompressLevel() {
+        return compressLevel;
+    }
+
+    public int getCompressBlockSize() {
+        return compressBlockSize;
+    }
+
+    public boolean isLineIndexEnabled() {
+        return lineIndex;
+    }
+
+    public RecordStart getRecordStart() {
+        return recordStart;
+    }
+
+    public LineProcessor getLineProcessor() {
+        return lineProcessor;
+    }
+}
@@ -0,0 +1,46 @@
+package com.util;
+
+/**
+ * 按时间分割日志时的时间窗口粒度。窗口以长整数键表示，如按小时为 yyyyMMddHH，
+ * 键的大小顺序即时间顺序，分片名中的时间标签按字典序排列同样有序
+ */
+public enum TimeWindow {
+
+    /** 每分钟一个分片，标签形如 2024-05-01_1305 */
+    MINUTE,
+
+    /** 每小时一个分片，标签形如 2024-05-01_13 */
+    HOUR,
+
+    /** 每天一个分片，标签形如 2024-05-01 */
+    DAY;
+
+    /**
+     * 按名称解析（忽略大小写），同时接受 m / h / d 简写，供命令行等文本输入使用
+     */
+    public static TimeWindow fromName(String name) {
+        String s = name.trim().toUpperCase();
+        for (TimeWindow window : values()) {
+            if (window.name().equals(s) || window.name().substring(0, 1).equals(s)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("未知的时间窗口: " + name + "（可选 minute / hour / day）");
+    }
+
+    /**
+     * 由窗口键生成分片名中的时间标签
+     */
+    public String label(long key) {
+        switch (this) {
+            case MINUTE:
+                return String.format("%04d-%02d-%02d_%02d%02d", key / 100000000, key / 1000000 % 100,
+                        key / 10000 % 100, key / 100 % 100, key % 100);
+            case HOUR:
+                return String.format("%04d-%02d-%02d_%02d", key / 1000000, key / 10000 % 100,
+                        key / 100 % 100, key % 100);
+            default:
+                return String.format("%04d-%02d-%02d", key / 10000, key / 100 % 100, key % 100);
+        }
+    }
+}